@@ -0,0 +1,201 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf.jmh;
+
+import java.io.IOException ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.graph.* ;
+import org.apache.jena.rdf.model.InfModel ;
+import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.rdf.model.ModelFactory ;
+import org.apache.jena.reasoner.Reasoner ;
+import org.apache.jena.reasoner.rulesys.GenericRuleReasoner ;
+import org.apache.jena.reasoner.rulesys.Rule ;
+import org.apache.jena.util.FileUtils ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.vocabulary.RDF ;
+import org.apache.jena.vocabulary.RDFS ;
+import org.openjdk.jmh.annotations.* ;
+import org.seaborne.jena.inf.GraphRDFS ;
+import org.seaborne.jena.inf.InferenceSetupRDFS ;
+
+/**
+ * One benchmark per dispatch branch of {@code GraphRDFS.Find3_Graph.find2},
+ * run against {@link GraphRDFS} and against a {@link GenericRuleReasoner}
+ * graph using the same rules as the tests ({@code testing/Inf/rdfs-min.rules}).
+ * <p>
+ * Run with {@code -prof gc} for allocation rates.
+ * <p>
+ * Generated data:
+ * <ul>
+ * <li>A binary class tree of depth {@code vocabDepth} under {@code :C}.
+ * <li>A chain of {@code vocabDepth} subproperties under {@code :p_0}.
+ * <li>{@code :d} with a domain of the "hot" leaf class and {@code :r} with a range.
+ * <li>{@code dataSize} subjects; a fraction {@code selectivity} of them are
+ *     instances of the hot leaf class, the rest are in the other half of the tree.
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BenchFindRDFS {
+
+    /** The find patterns, named after the branch of Find3_Graph they exercise. */
+    public enum Pattern {
+        X_type_T, X_type_ANY, ANY_type_T, ANY_type_ANY,
+        X_ANY_T, X_ANY_ANY, ANY_ANY_T, ANY_ANY_ANY,
+        subproperty
+    }
+
+    @Param({"X_type_T", "X_type_ANY", "ANY_type_T", "ANY_type_ANY",
+            "X_ANY_T", "X_ANY_ANY", "ANY_ANY_T", "ANY_ANY_ANY",
+            "subproperty"})
+    public Pattern pattern ;
+
+    @Param({"GraphRDFS", "Rules"})
+    public String impl ;
+
+    @Param({"3", "8"})
+    public int vocabDepth ;
+
+    @Param({"1000", "100000"})
+    public int dataSize ;
+
+    @Param({"0.01", "0.5"})
+    public double selectivity ;
+
+    private static final String NS = "http://example/" ;
+    private static final Node rdfType           = RDF.Nodes.type ;
+    private static final Node rdfsSubClassOf    = RDFS.Nodes.subClassOf ;
+    private static final Node rdfsSubPropertyOf = RDFS.Nodes.subPropertyOf ;
+    private static final Node rdfsDomain        = RDFS.Nodes.domain ;
+    private static final Node rdfsRange         = RDFS.Nodes.range ;
+
+    private Graph graph ;
+    private Node  s, p, o ;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Graph vocab = Factory.createDefaultGraph() ;
+        Graph data = Factory.createDefaultGraph() ;
+        buildVocab(vocab) ;
+        buildData(data) ;
+
+        switch(impl) {
+            case "GraphRDFS" : {
+                InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+                graph = new GraphRDFS(setup, data) ;
+                break ;
+            }
+            case "Rules" : {
+                String rulesFile = System.getProperty("rules", "testing/Inf/rdfs-min.rules") ;
+                String rules = FileUtils.readWholeFileAsUTF8(rulesFile) ;
+                rules = rules.replaceAll("#[^\\n]*", "") ;
+                Reasoner reasoner = new GenericRuleReasoner(Rule.parseRules(rules)) ;
+                Model mVocab = ModelFactory.createModelForGraph(vocab) ;
+                Model mData = ModelFactory.createModelForGraph(data) ;
+                InfModel m = ModelFactory.createInfModel(reasoner, mVocab, mData) ;
+                m.prepare() ;
+                graph = m.getGraph() ;
+                break ;
+            }
+            default :
+                throw new IllegalArgumentException("Unknown implementation: "+impl) ;
+        }
+        setPattern() ;
+    }
+
+    @Benchmark
+    public long find() {
+        ExtendedIterator<Triple> iter = graph.find(s, p, o) ;
+        long count = 0 ;
+        try {
+            while(iter.hasNext()) {
+                iter.next() ;
+                count++ ;
+            }
+        } finally { iter.close() ; }
+        return count ;
+    }
+
+    private void setPattern() {
+        Node x = subject(0) ;
+        // Top of the "hot" half of the class tree.
+        Node t = cls(1, 0) ;
+        switch(pattern) {
+            case X_type_T :     set(x, rdfType, t) ; break ;
+            case X_type_ANY :   set(x, rdfType, Node.ANY) ; break ;
+            case ANY_type_T :   set(Node.ANY, rdfType, t) ; break ;
+            case ANY_type_ANY : set(Node.ANY, rdfType, Node.ANY) ; break ;
+            case X_ANY_T :      set(x, Node.ANY, t) ; break ;
+            case X_ANY_ANY :    set(x, Node.ANY, Node.ANY) ; break ;
+            case ANY_ANY_T :    set(Node.ANY, Node.ANY, t) ; break ;
+            case ANY_ANY_ANY :  set(Node.ANY, Node.ANY, Node.ANY) ; break ;
+            case subproperty :  set(Node.ANY, property(0), Node.ANY) ; break ;
+        }
+    }
+
+    private void set(Node s, Node p, Node o) {
+        this.s = s ;
+        this.p = p ;
+        this.o = o ;
+    }
+
+    private void buildVocab(Graph vocab) {
+        // Binary tree of classes.
+        vocab.add(Triple.create(cls(1, 0), rdfsSubClassOf, cls(0, 0))) ;
+        vocab.add(Triple.create(cls(1, 1), rdfsSubClassOf, cls(0, 0))) ;
+        for ( int level = 2 ; level <= vocabDepth ; level++ ) {
+            int width = 1 << level ;
+            for ( int i = 0 ; i < width ; i++ )
+                vocab.add(Triple.create(cls(level, i), rdfsSubClassOf, cls(level-1, i/2))) ;
+        }
+        // Chain of subproperties.
+        for ( int i = 1 ; i <= vocabDepth ; i++ )
+            vocab.add(Triple.create(property(i), rdfsSubPropertyOf, property(i-1))) ;
+        vocab.add(Triple.create(node("d"), rdfsDomain, hotLeaf())) ;
+        vocab.add(Triple.create(node("r"), rdfsRange, cls(1, 1))) ;
+    }
+
+    private void buildData(Graph data) {
+        int width = 1 << vocabDepth ;
+        int half = width/2 ;
+        int hot = (int)Math.round(dataSize * selectivity) ;
+        Node pLeaf = property(vocabDepth) ;
+        for ( int i = 0 ; i < dataSize ; i++ ) {
+            Node x = subject(i) ;
+            boolean isHot = i < hot ;
+            Node type = isHot ? hotLeaf() : cls(vocabDepth, half + (i % half)) ;
+            data.add(Triple.create(x, rdfType, type)) ;
+            data.add(Triple.create(x, pLeaf, subject((i+1) % dataSize))) ;
+            data.add(Triple.create(x, node("r"), subject((i*7) % dataSize))) ;
+            if ( isHot )
+                data.add(Triple.create(x, node("d"), NodeFactory.createLiteral("v"+i))) ;
+        }
+    }
+
+    private Node hotLeaf()                  { return cls(vocabDepth, 0) ; }
+    private static Node cls(int level, int i) { return level == 0 ? node("C") : node("C_"+level+"_"+i) ; }
+    private static Node property(int i)     { return node("p_"+i) ; }
+    private static Node subject(int i)      { return node("s"+i) ; }
+    private static Node node(String str)    { return NodeFactory.createURI(NS+str) ; }
+}
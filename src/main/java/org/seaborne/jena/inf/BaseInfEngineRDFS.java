@@ -0,0 +1,416 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.concurrent.ConcurrentHashMap ;
+
+import org.seaborne.jena.inf.MetricsRDFS.Rule ;
+
+/**
+ * Apply a fixed set of inference rules to 3-tuples in X space (e.g. Node, NodeId).
+ * This is inference on the A-Box (the data) with respect to a fixed T-Box (the
+ * vocabulary, ontology).
+ * <ul>
+ * <li>rdfs:subClassOf (transitive)</li>
+ * <li>rdfs:subPropertyOf (transitive)</li>
+ * <li>rdfs:domain</li>
+ * <li>rdfs:range</li>
+ * </ul>
+ * 
+ * Usage: call process(X, X, X), outputs to derive(X, X, X).
+ * <p>
+ * The engine has no per-call state: {@link #process(Object, Object, Object, Output)}
+ * sends the output to its argument, not {@code derive}, and may be called
+ * concurrently from several threads.
+ * <p>
+ * The output for a triple is determined by the T-Box given the predicate
+ * (and, for {@code rdf:type}, the object). Processing uses a compiled plan per
+ * predicate and per type, made on first use: a flat array of emit templates
+ * with the subject/object either taken from the triple or a constant. Plans are
+ * recompiled if the setup is updated (see {@link BaseInfSetupRDFS#getGeneration}).
+ * <p>
+ * If metrics are enabled ({@link InfMetrics}), the number of triples derived by
+ * each rule is reported; each plan records how many of its templates come from each rule.
+ * A triple is counted under the rule that produced it, so the superclasses of a domain
+ * or range class count as subClass, whether by plan or by {@link #processRules}.
+ * 
+ * @see InferenceEngineRDFS
+ */
+public abstract class BaseInfEngineRDFS<X> {
+    protected final BaseInfSetupRDFS<X> setup ;
+    protected final X rdfType ;
+    protected final X rdfsSubClassOf ;
+    protected final X rdfsSubPropertyOf ;
+    protected final X rdfsDomain ;
+    protected final X rdfsRange ;
+
+    protected BaseInfEngineRDFS(BaseInfSetupRDFS<X> setup, X rdfType, X rdfsSubClassOf, X rdfsSubPropertyOf, X rdfsDomain, X rdfsRange) {
+        this.setup = setup ;
+        this.rdfType = rdfType ;
+        this.rdfsSubClassOf = rdfsSubClassOf ;
+        this.rdfsSubPropertyOf = rdfsSubPropertyOf ;
+        this.rdfsDomain = rdfsDomain ;
+        this.rdfsRange = rdfsRange ;
+    }
+
+    /** Destination for derived 3-tuples. */
+    @FunctionalInterface
+    public interface Output<X> {
+        public void derive(X s, X p, X o) ;
+    }
+
+    private final Output<X> toDerive = this::derive ;
+
+    public void process(X s, X p, X o) {
+        process(s, p, o, toDerive) ;
+    }
+
+    /** Process a 3-tuple, sending derived 3-tuples to {@code out}.
+     * This is safe to call from multiple threads.
+     */
+    public void process(X s, X p, X o, Output<X> out) {
+        if ( setup.includeDerivedDataRDFS() && ( p.equals(rdfsSubClassOf) || p.equals(rdfsSubPropertyOf) ) ) {
+            // Output depends on the object as a vocabulary term.
+            processRules(s, p, o, out) ;
+            return ;
+        }
+        MetricsRDFS metrics = InfMetrics.get() ;
+        Plan<X> plan = plan(predicatePlans, p, false) ;
+        boolean skipRange = plan.rangeStart < plan.size && isLiteral(o) ;
+        plan.exec(s, o, skipRange, out) ;
+        if ( metrics != null )
+            plan.report(metrics, skipRange) ;
+        if ( p.equals(rdfType) ) {
+            Plan<X> typePlan = plan(typePlans, o, true) ;
+            typePlan.exec(s, o, false, out) ;
+            if ( metrics != null )
+                typePlan.report(metrics, false) ;
+        }
+    }
+
+    /** Process by running the rules directly, without plans. */
+    protected void processRules(X s, X p, X o, Output<X> out) {
+        MetricsRDFS metrics = InfMetrics.get() ;
+        Output<X> subClassOut = counting(out, metrics, Rule.SUBCLASS) ;
+        subClass(s, p, o, subClassOut) ;
+        subProperty(s, p, o, counting(out, metrics, Rule.SUBPROPERTY)) ;
+
+        // domain() and range() also go through subClass processing.
+        // As for plans, the superclasses of the domain or range class are counted as subClass.
+        domain(s, p, o, counting(out, metrics, Rule.DOMAIN), subClassOut) ;
+        range(s, p, o, counting(out, metrics, Rule.RANGE), subClassOut) ;
+    }
+
+    private static <X> Output<X> counting(Output<X> out, MetricsRDFS metrics, Rule rule) {
+        if ( metrics == null )
+            return out ;
+        return (s, p, o) -> {
+            metrics.derived(rule, 1) ;
+            out.derive(s, p, o) ;
+        } ;
+    }
+
+    // ---- Plans
+
+    // Template positions.
+    private static final byte CONST = 0 ;
+    private static final byte SUBJ  = 1 ;
+    private static final byte OBJ   = 2 ;
+
+    // Only vocabulary terms have cached plans; this is a safety limit.
+    private static final int MaxCachedPlans = 100_000 ;
+
+    private final Map<X, Plan<X>> predicatePlans = new ConcurrentHashMap<>() ;
+    private final Map<X, Plan<X>> typePlans      = new ConcurrentHashMap<>() ;
+    private volatile long plansGeneration        = -1 ;
+
+    private Plan<X> plan(Map<X, Plan<X>> plans, X x, boolean isType) {
+        // Data may have many terms not in the vocabulary (e.g. instance-level classes).
+        // Their plans are not cached: empty except for derived RDFS data about a type.
+        if ( setup.dictionary().id(x) < 0 ) {
+            if ( isType && setup.includeDerivedDataRDFS() )
+                return compileType(x, setup.getGeneration()) ;
+            return emptyPlan() ;
+        }
+        long generation = setup.getGeneration() ;
+        if ( generation != plansGeneration ) {
+            predicatePlans.clear() ;
+            typePlans.clear() ;
+            plansGeneration = generation ;
+        }
+        Plan<X> plan = plans.get(x) ;
+        // A plan made concurrently with a setup update may be out of date. 
+        if ( plan == null || plan.generation != generation ) {
+            plan = isType ? compileType(x, generation) : compilePredicate(x, generation) ;
+            if ( plans.size() < MaxCachedPlans )
+                plans.put(x, plan) ;
+        }
+        return plan ;
+    }
+
+    /** Plan for (?s rdf:type type): the subClass rule. */
+    private Plan<X> compileType(X type, long generation) {
+        PlanBuilder<X> builder = new PlanBuilder<>() ;
+        compileTypeOf(builder, SUBJ, type) ;
+        return builder.build(generation, builder.size()) ;
+    }
+
+    /** Plan for (?s p ?o): the subProperty, domain and range rules.
+     * Not used for rdfs:subClassOf and rdfs:subPropertyOf when including derived RDFS data.
+     */
+    private Plan<X> compilePredicate(X p, long generation) {
+        PlanBuilder<X> builder = new PlanBuilder<>() ;
+        Output<X> constants = builder::constant ;
+        boolean derived = setup.includeDerivedDataRDFS() ;
+        // subProperty
+        builder.rule = Rule.SUBPROPERTY ;
+        Set<X> x = setup.getSuperProperties(p) ;
+        for ( X p2 : x )
+            builder.add(SUBJ, null, p2, OBJ, null) ;
+        if ( derived && ! x.isEmpty() )
+            subProperty(p, rdfsSubPropertyOf, p, constants) ;
+        // domain
+        builder.rule = Rule.DOMAIN ;
+        for ( X c : setup.getDomain(p) ) {
+            builder.add(SUBJ, null, rdfType, CONST, c) ;
+            compileTypeOf(builder, SUBJ, c) ;
+            if ( derived )
+                builder.constant(p, rdfsDomain, c) ;
+        }
+        // range - skipped for a literal object.
+        int rangeStart = builder.size() ;
+        builder.rule = Rule.RANGE ;
+        for ( X c : setup.getRange(p) ) {
+            builder.add(OBJ, null, rdfType, CONST, c) ;
+            compileTypeOf(builder, OBJ, c) ;
+            if ( derived )
+                builder.constant(p, rdfsRange, c) ;
+        }
+        return builder.build(generation, rangeStart) ;
+    }
+
+    /** Compile subClass(?x, rdf:type, type) where ?x is at "position" of the triple. */
+    private void compileTypeOf(PlanBuilder<X> builder, byte position, X type) {
+        Rule rule = builder.rule ;
+        builder.rule = Rule.SUBCLASS ;
+        for ( X c : setup.getSuperClasses(type) )
+            builder.add(position, null, rdfType, CONST, c) ;
+        if ( setup.includeDerivedDataRDFS() )
+            subClass(type, rdfsSubClassOf, type, builder::constant) ;
+        builder.rule = rule ;
+    }
+
+    private static final Rule[] rules = Rule.values() ;
+
+    @SuppressWarnings("rawtypes")
+    private static final Plan EmptyPlan = new PlanBuilder<>().build(-1, 0) ;
+
+    @SuppressWarnings("unchecked")
+    private static <X> Plan<X> emptyPlan() {
+        return EmptyPlan ;
+    }
+
+    /** Flat arrays of emit templates. Templates from rangeStart on come from rdfs:range. */
+    private static final class Plan<X> {
+        final long generation ;
+        final int size ;
+        final int rangeStart ;
+        final byte[] sPosn ;
+        final byte[] oPosn ;
+        final Object[] sConst ;
+        final Object[] pConst ;
+        final Object[] oConst ;
+        // Number of templates from each rule, for all templates and for those before rangeStart. 
+        final int[] ruleCounts ;
+        final int[] ruleCountsNoRange ;
+
+        Plan(long generation, int rangeStart, byte[] sPosn, Object[] sConst, Object[] pConst, byte[] oPosn, Object[] oConst, Rule[] rules) {
+            this.generation = generation ;
+            this.size = pConst.length ;
+            this.rangeStart = rangeStart ;
+            this.sPosn = sPosn ;
+            this.sConst = sConst ;
+            this.pConst = pConst ;
+            this.oPosn = oPosn ;
+            this.oConst = oConst ;
+            this.ruleCounts = new int[BaseInfEngineRDFS.rules.length] ;
+            this.ruleCountsNoRange = new int[BaseInfEngineRDFS.rules.length] ;
+            for ( int i = 0 ; i < rules.length ; i++ ) {
+                ruleCounts[rules[i].ordinal()]++ ;
+                if ( i < rangeStart )
+                    ruleCountsNoRange[rules[i].ordinal()]++ ;
+            }
+        }
+
+        void report(MetricsRDFS metrics, boolean skipRange) {
+            int[] counts = skipRange ? ruleCountsNoRange : ruleCounts ;
+            for ( int i = 0 ; i < counts.length ; i++ ) {
+                if ( counts[i] > 0 )
+                    metrics.derived(BaseInfEngineRDFS.rules[i], counts[i]) ;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void exec(X s, X o, boolean skipRange, Output<X> out) {
+            int end = skipRange ? rangeStart : size ;
+            for ( int i = 0 ; i < end ; i++ ) {
+                X s1 = value(sPosn[i], (X)sConst[i], s, o) ;
+                X o1 = value(oPosn[i], (X)oConst[i], s, o) ;
+                out.derive(s1, (X)pConst[i], o1) ;
+            }
+        }
+
+        private static <X> X value(byte posn, X constant, X s, X o) {
+            switch(posn) {
+                case SUBJ : return s ;
+                case OBJ :  return o ;
+                default :   return constant ;
+            }
+        }
+    }
+
+    private static final class PlanBuilder<X> {
+        private final List<Object[]> templates = new ArrayList<>() ;
+        // The rule for templates being added.
+        Rule rule = Rule.SUBCLASS ;
+
+        void add(byte sPosn, X s, X p, byte oPosn, X o) {
+            templates.add(new Object[]{sPosn, s, p, oPosn, o, rule}) ;
+        }
+
+        void constant(X s, X p, X o) {
+            add(CONST, s, p, CONST, o) ;
+        }
+
+        int size() {
+            return templates.size() ;
+        }
+
+        Plan<X> build(long generation, int rangeStart) {
+            int n = templates.size() ;
+            byte[] sPosn = new byte[n] ;
+            byte[] oPosn = new byte[n] ;
+            Object[] sConst = new Object[n] ;
+            Object[] pConst = new Object[n] ;
+            Object[] oConst = new Object[n] ;
+            Rule[] rules = new Rule[n] ;
+            for ( int i = 0 ; i < n ; i++ ) {
+                Object[] t = templates.get(i) ;
+                sPosn[i] = (Byte)t[0] ;
+                sConst[i] = t[1] ;
+                pConst[i] = t[2] ;
+                oPosn[i] = (Byte)t[3] ;
+                oConst[i] = t[4] ;
+                rules[i] = (Rule)t[5] ;
+            }
+            return new Plan<>(generation, rangeStart, sPosn, sConst, pConst, oPosn, oConst, rules) ;
+        }
+    }
+
+    // ---- Rules
+
+    /** Any triple derived is sent to this method - does not include the trigger triple
+     * (but that might be derived as well as being concrete). 
+     */
+    protected abstract void derive(X s, X p, X o) ;
+
+    /** Test for a literal - literals are not made the subject of derived triples. */
+    protected abstract boolean isLiteral(X x) ;
+
+    // Rule extracts from Jena's RDFS rules etc/rdfs.rules
+    // Loops rather than forEach: no lambda capturing "out" per call.
+
+    /*
+     * [rdfs8: (?a rdfs:subClassOf ?b), (?b rdfs:subClassOf ?c) -> (?a rdfs:subClassOf ?c)]
+     * [rdfs9: (?x rdfs:subClassOf ?y), (?a rdf:type ?x) -> (?a rdf:type ?y)]
+     */
+    final private void subClass(X s, X p, X o, Output<X> out) {
+        if ( p.equals(rdfType) ) {
+            for ( X c : setup.getSuperClasses(o) )
+                out.derive(s, rdfType, c) ;
+            if ( setup.includeDerivedDataRDFS() ) {
+                subClass(o, rdfsSubClassOf, o, out) ;    // Recurse
+            }
+        }
+        if ( setup.includeDerivedDataRDFS() && p.equals(rdfsSubClassOf) ) {
+            for ( X c : setup.getSuperClasses(o) )
+                out.derive(o, p, c) ;
+            for ( X c : setup.getSubClasses(o) )
+                out.derive(c, p, o) ;
+            out.derive(s, p, s) ;
+            out.derive(o, p, o) ;
+        }
+    }
+
+    /*
+     * [rdfs5a: (?a rdfs:subPropertyOf ?b), (?b rdfs:subPropertyOf ?c) -> (?a rdfs:subPropertyOf ?c)] 
+     * [rdfs6: (?a ?p ?b), (?p rdfs:subPropertyOf ?q) -> (?a ?q ?b)]
+     */
+    private void subProperty(X s, X p, X o, Output<X> out) {
+        Set<X> x = setup.getSuperProperties(p) ;
+        for ( X p2 : x )
+            out.derive(s, p2, o) ;
+        if ( setup.includeDerivedDataRDFS() ) {
+            if ( ! x.isEmpty() )
+                subProperty(p, rdfsSubPropertyOf, p, out) ;
+            if ( p.equals(rdfsSubPropertyOf) ) {
+                // ** RDFS extra
+                for ( X c : setup.getSuperProperties(o) )
+                    out.derive(o, p, c) ;
+                for ( X c : setup.getSubProperties(o) )
+                    out.derive(c, p, o) ;
+                out.derive(s, p, s) ;
+                out.derive(o, p, o) ;
+            }
+        }
+    }
+
+    /*
+     * [rdfs2: (?p rdfs:domain ?c) -> [(?x rdf:type ?c) <- (?x ?p ?y)] ]
+     * [rdfs9: (?x rdfs:subClassOf ?y), (?a rdf:type ?x) -> (?a rdf:type ?y)]
+     */
+    final private void domain(X s, X p, X o, Output<X> out, Output<X> subClassOut) {
+        for ( X c : setup.getDomain(p) ) {
+            out.derive(s, rdfType, c) ;
+            subClass(s, rdfType, c, subClassOut) ;
+            if ( setup.includeDerivedDataRDFS() )
+                out.derive(p, rdfsDomain, c) ;
+        }
+    }
+
+    /*
+     * [rdfs3: (?p rdfs:range ?c) -> [(?y rdf:type ?c) <- (?x ?p ?y)] ]
+     * [rdfs9: (?x rdfs:subClassOf ?y), (?a rdf:type ?x) -> (?a rdf:type ?y)]
+     */
+    final private void range(X s, X p, X o, Output<X> out, Output<X> subClassOut) {
+        // Mask out literal subjects
+        if ( isLiteral(o) )
+            return ;
+        // Range
+        for ( X c : setup.getRange(p) ) {
+            out.derive(o, rdfType, c) ;
+            subClass(o, rdfType, c, subClassOut) ;
+            if ( setup.includeDerivedDataRDFS() )
+                out.derive(p, rdfsRange, c) ;
+        }
+    }
+}
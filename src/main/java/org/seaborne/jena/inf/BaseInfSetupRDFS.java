@@ -17,56 +17,71 @@
 
 package org.seaborne.jena.inf ;
 
-import java.util.* ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsDomain ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsRange ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsSubClassOf ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsSubPropertyOf ;
 
-import org.apache.jena.atlas.lib.StrUtils ;
+import java.nio.IntBuffer ;
+import java.util.* ;
+import java.util.function.Function ;
+import java.util.function.Supplier ;
 
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
-import org.apache.jena.query.* ;
+import org.apache.jena.graph.Triple ;
 import org.apache.jena.rdf.model.Model ;
 import org.apache.jena.rdf.model.ModelFactory ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
 
 /** Core of datastructures needed for RDFS.
  *  To be general, this is in X space (e.g. Node, NodeId). 
  *  
  */
 public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
+    /** The vocabulary. Null for a setup made from tables ({@link SnapshotRDFS}).
+     * @deprecated Use {@link #getVocabGraph()}, which works for all setups.
+     */
+    @Deprecated
     public final Graph vocabGraph ;
+    // Setup made from tables: the vocabulary graph, made when first asked for.
+    private volatile Graph loadedVocabGraph = null ;
+    private final Supplier<Graph> vocabSupplier ;
     
-    // Variants for with and without the key in the value side.
-    // Adding to a list is cheap? List(elt, tail)
-    
-    private final Map<X, Set<X>> superClasses         = new HashMap<>() ;
-    private final Map<X, Set<X>> superClassesInc      = new HashMap<>() ;
-    private final Map<X, Set<X>> subClasses           = new HashMap<>() ;
-    private final Map<X, Set<X>> subClassesInc        = new HashMap<>() ;
-    private final Set<X> classes                         = new HashSet<>() ;
-
-    private final Map<X, Set<X>> superPropertiesInc   = new HashMap<>() ;
-    private final Map<X, Set<X>> superProperties      = new HashMap<>() ;
-    private final Map<X, Set<X>> subPropertiesInc     = new HashMap<>() ;
-    private final Map<X, Set<X>> subProperties        = new HashMap<>() ;
+    // All terms are given a dense integer id and the tables are in int space.
+    // Rows are sorted int arrays. The "Inc" variants (including the key in the
+    // value side) are views over the same rows, not copies.
+    private final TermDictionary<X> dict                = new TermDictionary<>() ;
+
+    private final IntMultimap superClasses              = new IntMultimap() ;
+    private final IntMultimap subClasses                = new IntMultimap() ;
+
+    private final IntMultimap superProperties           = new IntMultimap() ;
+    private final IntMultimap subProperties             = new IntMultimap() ;
     
     // Predicate -> type 
-    private final Map<X, Set<X>> propertyRange        = new HashMap<>() ;
-    private final Map<X, Set<X>> propertyDomain       = new HashMap<>() ;
+    private final IntMultimap propertyRange             = new IntMultimap() ;
+    private final IntMultimap propertyDomain            = new IntMultimap() ;
     
     // Type -> predicate
-    private final Map<X, Set<X>> rangeToProperty      = new HashMap<>() ;
-    private final Map<X, Set<X>> domainToProperty     = new HashMap<>() ;
+    private final IntMultimap rangeToProperty           = new IntMultimap() ;
+    private final IntMultimap domainToProperty          = new IntMultimap() ;
+
+    // Direct edges, kept for incremental updates.
+    private final IntMultimap superClassesDirect        = new IntMultimap() ;
+    private final IntMultimap subClassesDirect          = new IntMultimap() ;
+    private final IntMultimap superPropertiesDirect     = new IntMultimap() ;
+    private final IntMultimap subPropertiesDirect       = new IntMultimap() ;
+
+    // Incremented on each change to the tables.
+    private volatile long generation = 0 ;
+    // Properties with domain/range declarations; rebuilt on demand after a change.
+    private volatile Set<X> domainProperties = null ;
+    private volatile Set<X> rangeProperties = null ;
 
     // Whether we include the RDFS data in the results (as if TBox (rules) and ABox (ground data) are one unit).
     private final boolean includeDerivedDataRDFS$ ;
 
-    private static String preamble = StrUtils.strjoinNL
-        ("PREFIX  rdf:    <http://www.w3.org/1999/02/22-rdf-syntax-ns#>",
-         "PREFIX  rdfs:   <http://www.w3.org/2000/01/rdf-schema#>",
-         "PREFIX  xsd:    <http://www.w3.org/2001/XMLSchema#>",
-         "PREFIX  owl:    <http://www.w3.org/2002/07/owl#>",
-         "PREFIX skos:    <http://www.w3.org/2004/02/skos/core#>") ;
-
-    
     public BaseInfSetupRDFS(Graph vocab) {
         this(vocab, false) ;
     }
@@ -79,66 +94,131 @@ public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
     }
     
     public BaseInfSetupRDFS(Model vocab, boolean incDerivedDataRDFS) {
+        this(vocab, incDerivedDataRDFS, null) ;
+    }
+
+    /** For subclasses where {@link #fromNode} needs state that is not
+     * available until after the superclass constructor has run. 
+     */
+    protected BaseInfSetupRDFS(Graph vocab, boolean incDerivedDataRDFS, Function<Node, X> mapper) {
+        this(ModelFactory.createModelForGraph(vocab), incDerivedDataRDFS, mapper) ;
+    }
+
+    /** For subclasses where {@link #fromNode} needs state that is not
+     * available until after the superclass constructor has run. 
+     */
+    protected BaseInfSetupRDFS(Model vocab, boolean incDerivedDataRDFS, Function<Node, X> mapper) {
         includeDerivedDataRDFS$ = incDerivedDataRDFS ;
         vocabGraph = vocab.getGraph() ;
+        vocabSupplier = null ;
+        Function<Node, X> fn = ( mapper != null ) ? mapper : this::fromNode ;
         
-        // Find super classes - uses property paths
-        exec("SELECT ?x ?y { ?x rdfs:subClassOf+ ?y }", vocab, superClasses, subClasses ) ;
+        // Direct edges, read once from the vocabulary graph.
+        read(vocabGraph, rdfsSubClassOf, fn, superClassesDirect, subClassesDirect) ;
+        read(vocabGraph, rdfsSubPropertyOf, fn, superPropertiesDirect, subPropertiesDirect) ;
+        superClassesDirect.compact() ;
+        subClassesDirect.compact() ;
+        superPropertiesDirect.compact() ;
+        subPropertiesDirect.compact() ;
+
+        // Find super classes
+        TransitiveClosure.closure(superClassesDirect, dict.size(), superClasses, subClasses) ;
 
         // Find properties
-        exec("SELECT ?x ?y { ?x rdfs:subPropertyOf+ ?y }", vocab, superProperties, subProperties) ;
+        TransitiveClosure.closure(superPropertiesDirect, dict.size(), superProperties, subProperties) ;
 
         // Find domain
-        exec("SELECT ?x ?y { ?x rdfs:domain ?y }", vocab, propertyDomain, domainToProperty) ;
+        read(vocabGraph, rdfsDomain, fn, propertyDomain, domainToProperty) ;
 
         // Find range
-        exec("SELECT ?x ?y { ?x rdfs:range ?y }", vocab, propertyRange, rangeToProperty) ;
-        
-        // All mentioned classes
-        classes.addAll(superClasses.keySet()) ;
-        classes.addAll(subClasses.keySet()) ;
-        classes.addAll(rangeToProperty.keySet()) ;
-        classes.addAll(domainToProperty.keySet()) ;
-        
-        deepCopyInto(superClassesInc, superClasses) ;
-        addKeysToValues(superClassesInc) ;
+        read(vocabGraph, rdfsRange, fn, propertyRange, rangeToProperty) ;
         
-        deepCopyInto(subClassesInc, subClasses) ;
-        addKeysToValues(subClassesInc) ;
-        
-        deepCopyInto(superPropertiesInc, superProperties) ;
-        addKeysToValues(superPropertiesInc) ;
-        
-        deepCopyInto(subPropertiesInc, subProperties) ;
-        addKeysToValues(subPropertiesInc) ;
+        superClasses.compact() ;
+        subClasses.compact() ;
+        superProperties.compact() ;
+        subProperties.compact() ;
+        propertyDomain.compact() ;
+        domainToProperty.compact() ;
+        propertyRange.compact() ;
+        rangeToProperty.compact() ;
     }
 
-    private void deepCopyInto(Map<X, Set<X>> dest, Map<X, Set<X>> src) {
-        src.entrySet().forEach(e -> {
-            Set<X> x = new HashSet<>(e.getValue()) ;
-            dest.put(e.getKey(), x) ;
-        }) ;
+    /** Setup from tables previously computed: see {@link SnapshotRDFS}.
+     * {@code terms} are in id order and the tables, as CSR offsets and values,
+     * are in the order of {@link #tables()}. The buffers are used, not copied.
+     * The vocabulary graph is only made, by {@code vocab}, if it is asked for.
+     */
+    BaseInfSetupRDFS(Supplier<Graph> vocab, boolean incDerivedDataRDFS, List<X> terms, IntBuffer[] offsets, IntBuffer[] values) {
+        includeDerivedDataRDFS$ = incDerivedDataRDFS ;
+        vocabGraph = null ;
+        vocabSupplier = vocab ;
+        for ( X term : terms )
+            dict.getAllocate(term) ;
+        IntMultimap[] maps = tables() ;
+        if ( maps.length != offsets.length || maps.length != values.length )
+            throw new IllegalArgumentException("Expected "+maps.length+" tables, got "+offsets.length) ;
+        for ( int i = 0 ; i < maps.length ; i++ )
+            maps[i].setBase(offsets[i], values[i], offsets[i].limit()-1) ;
     }
 
-    private void addKeysToValues(Map<X, Set<X>> map) {
-        map.entrySet().forEach(e -> e.getValue().add(e.getKey()) ) ;
+    // Indexes of the tables in tables().
+    static final int TABLE_SUPER_CLASSES            = 0 ;
+    static final int TABLE_SUB_CLASSES              = 1 ;
+    static final int TABLE_SUPER_PROPERTIES         = 2 ;
+    static final int TABLE_SUB_PROPERTIES           = 3 ;
+    static final int TABLE_PROPERTY_RANGE           = 4 ;
+    static final int TABLE_PROPERTY_DOMAIN          = 5 ;
+    static final int TABLE_RANGE_TO_PROPERTY        = 6 ;
+    static final int TABLE_DOMAIN_TO_PROPERTY       = 7 ;
+    static final int TABLE_SUPER_CLASSES_DIRECT     = 8 ;
+    static final int TABLE_SUB_CLASSES_DIRECT       = 9 ;
+    static final int TABLE_SUPER_PROPERTIES_DIRECT  = 10 ;
+    static final int TABLE_SUB_PROPERTIES_DIRECT    = 11 ;
+
+    /** All the tables, in a fixed order (see the TABLE_ constants).
+     * The order is part of the snapshot format.
+     */ 
+    IntMultimap[] tables() {
+        return new IntMultimap[] {
+            superClasses, subClasses, superProperties, subProperties,
+            propertyRange, propertyDomain, rangeToProperty, domainToProperty,
+            superClassesDirect, subClassesDirect, superPropertiesDirect, subPropertiesDirect
+        } ;
     }
 
-    private void exec(String qs, Model model, Map<X, Set<X>> multimap1, Map<X, Set<X>> multimap2) {
-        Query query = QueryFactory.create(preamble + "\n" + qs, Syntax.syntaxARQ) ;
-        QueryExecution qexec = QueryExecutionFactory.create(query, model) ;
-        ResultSet rs = qexec.execSelect() ;
-        for ( ; rs.hasNext() ; ) {
-            QuerySolution soln = rs.next() ;
-            Node x = soln.get("x").asNode() ;
-            Node y = soln.get("y").asNode() ;
-            X a = fromNode(x) ;
-            X b = fromNode(y) ;
-            put(multimap1, a, b) ;
-            put(multimap2, b, a) ;
+    /** The RDFS triples of the vocabulary the setup was made from. */
+    @SuppressWarnings("deprecation")
+    public Graph getVocabGraph() {
+        if ( vocabGraph != null )
+            return vocabGraph ;
+        Graph graph = loadedVocabGraph ;
+        if ( graph != null )
+            return graph ;
+        synchronized(vocabSupplier) {
+            if ( loadedVocabGraph == null )
+                loadedVocabGraph = vocabSupplier.get() ;
+            return loadedVocabGraph ;
         }
     }
 
+    TermDictionary<X> dictionary() {
+        return dict ;
+    }
+
+    private void read(Graph graph, Node property, Function<Node, X> fn, IntMultimap multimap1, IntMultimap multimap2) {
+        ExtendedIterator<Triple> iter = graph.find(Node.ANY, property, Node.ANY) ;
+        try {
+            while ( iter.hasNext() ) {
+                Triple triple = iter.next() ;
+                int a = dict.getAllocate(fn.apply(triple.getSubject())) ;
+                int b = dict.getAllocate(fn.apply(triple.getObject())) ;
+                multimap1.add(a, b) ;
+                if ( multimap2 != null )
+                    multimap2.add(b, a) ;
+            }
+        } finally { iter.close() ; }
+    }
+
     /** Go from Node space to X space
      * for a node that is in the RDFS vocabulary.
      * Must not return null or "don't know". 
@@ -151,17 +231,174 @@ public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
         return includeDerivedDataRDFS$ ;
     }
 
-    private static <X> void put(Map<X, Set<X>> multimap, X n1, X n2) {
-        if ( !multimap.containsKey(n1) )
-            multimap.put(n1, new HashSet<X>()) ;
-        multimap.get(n1).add(n2) ;
+    // ---- Incremental changes to the T-Box.
+    // Each operation updates only the affected entries and returns the terms
+    // (classes or properties) whose entries changed. The vocabulary graph is not modified.
+    // Changes are serialized; concurrent lookups see each entry either before or after a change.
+
+    /** Add {@code sub rdfs:subClassOf sup}. Returns the terms whose entries changed. */
+    public synchronized Set<X> addSubClassOf(X sub, X sup) {
+        return addEdge(sub, sup, superClassesDirect, subClassesDirect, superClasses, subClasses) ;
+    }
+
+    /** Remove {@code sub rdfs:subClassOf sup}. Returns the terms whose entries changed. */
+    public synchronized Set<X> removeSubClassOf(X sub, X sup) {
+        return removeEdge(sub, sup, superClassesDirect, subClassesDirect, superClasses, subClasses) ;
     }
 
-    private Set<X> empty = Collections.emptySet() ;
+    /** Add {@code sub rdfs:subPropertyOf sup}. Returns the terms whose entries changed. */
+    public synchronized Set<X> addSubPropertyOf(X sub, X sup) {
+        return addEdge(sub, sup, superPropertiesDirect, subPropertiesDirect, superProperties, subProperties) ;
+    }
+
+    /** Remove {@code sub rdfs:subPropertyOf sup}. Returns the terms whose entries changed. */
+    public synchronized Set<X> removeSubPropertyOf(X sub, X sup) {
+        return removeEdge(sub, sup, superPropertiesDirect, subPropertiesDirect, superProperties, subProperties) ;
+    }
+
+    /** Add {@code property rdfs:domain type}. Returns the terms whose entries changed. */
+    public synchronized Set<X> addDomain(X property, X type) {
+        return addPair(property, type, propertyDomain, domainToProperty) ;
+    }
+
+    /** Remove {@code property rdfs:domain type}. Returns the terms whose entries changed. */
+    public synchronized Set<X> removeDomain(X property, X type) {
+        return removePair(property, type, propertyDomain, domainToProperty) ;
+    }
+
+    /** Add {@code property rdfs:range type}. Returns the terms whose entries changed. */
+    public synchronized Set<X> addRange(X property, X type) {
+        return addPair(property, type, propertyRange, rangeToProperty) ;
+    }
+
+    /** Remove {@code property rdfs:range type}. Returns the terms whose entries changed. */
+    public synchronized Set<X> removeRange(X property, X type) {
+        return removePair(property, type, propertyRange, rangeToProperty) ;
+    }
+
+    /** A counter that changes whenever the tables change.
+     * Caches of anything derived from this setup can compare generations to detect T-Box changes.
+     */
+    public long getGeneration() {
+        return generation ;
+    }
+
+    private Set<X> addEdge(X a, X b, IntMultimap upDirect, IntMultimap downDirect, IntMultimap up, IntMultimap down) {
+        int ia = dict.getAllocate(a) ;
+        int ib = dict.getAllocate(b) ;
+        Set<X> changed = new HashSet<>() ;
+        if ( ! upDirect.insert(ia, ib) )
+            return changed ;
+        downDirect.insert(ib, ia) ;
+        if ( up.contains(ia, ib) )
+            // Already in the closure.
+            return changed ;
+        // Everything that reaches a (and a) now reaches b and everything b reaches.
+        int[] from = IntMultimap.union(down.get(ia), new int[]{ia}) ;
+        int[] to = IntMultimap.union(up.get(ib), new int[]{ib}) ;
+        for ( int x : from ) {
+            if ( up.replace(x, IntMultimap.union(up.get(x), to)) )
+                changed.add(dict.term(x)) ;
+        }
+        for ( int y : to ) {
+            if ( down.replace(y, IntMultimap.union(down.get(y), from)) )
+                changed.add(dict.term(y)) ;
+        }
+        return changed(changed) ;
+    }
+
+    private Set<X> removeEdge(X a, X b, IntMultimap upDirect, IntMultimap downDirect, IntMultimap up, IntMultimap down) {
+        int ia = dict.id(a) ;
+        int ib = dict.id(b) ;
+        Set<X> changed = new HashSet<>() ;
+        if ( ia < 0 || ib < 0 || ! upDirect.remove(ia, ib) )
+            return changed ;
+        downDirect.remove(ib, ia) ;
+        // Only entries for terms that reached a, or are reached from b, can change.
+        // Recompute those from the direct edges.
+        int[] from = IntMultimap.union(down.get(ia), new int[]{ia}) ;
+        int[] to = IntMultimap.union(up.get(ib), new int[]{ib}) ;
+        BitSet seen = new BitSet() ;
+        for ( int x : from ) {
+            if ( up.replace(x, reachable(x, upDirect, seen)) )
+                changed.add(dict.term(x)) ;
+        }
+        for ( int y : to ) {
+            if ( down.replace(y, reachable(y, downDirect, seen)) )
+                changed.add(dict.term(y)) ;
+        }
+        return changed(changed) ;
+    }
+
+    /** Terms reachable from start by one or more edges, sorted.
+     * Start is included only if it is on a cycle. {@code seen} is clear on entry and on exit.
+     */
+    private static int[] reachable(int start, IntMultimap edges, BitSet seen) {
+        int[] queue = new int[16] ;
+        int head = 0 ;
+        int tail = 0 ;
+        int v = start ;
+        for ( ;; ) {
+            for ( int w : edges.get(v) ) {
+                if ( seen.get(w) )
+                    continue ;
+                seen.set(w) ;
+                if ( tail == queue.length )
+                    queue = Arrays.copyOf(queue, 2*tail) ;
+                queue[tail++] = w ;
+            }
+            if ( head == tail )
+                break ;
+            v = queue[head++] ;
+        }
+        int[] result = Arrays.copyOf(queue, tail) ;
+        Arrays.sort(result) ;
+        for ( int w : result )
+            seen.clear(w) ;
+        return result ;
+    }
+
+    private Set<X> addPair(X a, X b, IntMultimap multimap1, IntMultimap multimap2) {
+        int ia = dict.getAllocate(a) ;
+        int ib = dict.getAllocate(b) ;
+        Set<X> changed = new HashSet<>() ;
+        if ( multimap1.insert(ia, ib) ) {
+            multimap2.insert(ib, ia) ;
+            changed.add(a) ;
+            changed.add(b) ;
+        }
+        return changed(changed) ;
+    }
+
+    private Set<X> removePair(X a, X b, IntMultimap multimap1, IntMultimap multimap2) {
+        int ia = dict.id(a) ;
+        int ib = dict.id(b) ;
+        Set<X> changed = new HashSet<>() ;
+        if ( ia >= 0 && ib >= 0 && multimap1.remove(ia, ib) ) {
+            multimap2.remove(ib, ia) ;
+            changed.add(a) ;
+            changed.add(b) ;
+        }
+        return changed(changed) ;
+    }
+
+    private Set<X> changed(Set<X> changed) {
+        if ( ! changed.isEmpty() ) {
+            domainProperties = null ;
+            rangeProperties = null ;
+            generation++ ;
+        }
+        return changed ;
+    }
+
+    private Set<X> result(IntMultimap map, X elt) {
+        return map.getSet(dict, dict.id(elt), -1) ;
+    }
     
-    private Set<X> result(Map<X, Set<X>> map, X elt) {
-        Set<X> x = map.get(elt) ;
-        return x != null ? x : empty ;
+    // The key is added only if there is an entry. 
+    private Set<X> resultInc(IntMultimap map, X elt) {
+        int id = dict.id(elt) ;
+        return map.getSet(dict, id, id) ;
     }
     
     // get : return the Set corresponing to element elt  
@@ -174,7 +411,7 @@ public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
 
     @Override
     public Set<X> getSuperClassesInc(X elt) {
-        return result(superClassesInc, elt) ;
+        return resultInc(superClasses, elt) ;
     }
 
     @Override
@@ -184,7 +421,7 @@ public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
 
     @Override
     public Set<X> getSubClassesInc(X elt) {
-        return result(subClassesInc, elt) ;
+        return resultInc(subClasses, elt) ;
     }
 
     @Override
@@ -194,7 +431,7 @@ public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
 
     @Override
     public Set<X> getSuperPropertiesInc(X elt) {
-        return result(superPropertiesInc, elt) ;
+        return resultInc(superProperties, elt) ;
     }
 
     @Override
@@ -204,7 +441,7 @@ public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
 
     @Override
     public Set<X> getSubPropertiesInc(X elt) {
-        return result(subPropertiesInc, elt) ;
+        return resultInc(subProperties, elt) ;
     }
 
     @Override
@@ -217,6 +454,32 @@ public abstract class BaseInfSetupRDFS<X> implements InfSetupRDFS<X>{
         return ! propertyDomain.isEmpty() ;
     }
 
+    /** The properties that have a domain declaration. */
+    public Set<X> getDomainProperties() {
+        Set<X> x = domainProperties ;
+        if ( x == null ) {
+            long gen = generation ;
+            x = new DenseSet<>(dict, propertyDomain.keys()) ;
+            // Do not cache if the tables changed meanwhile.
+            if ( gen == generation )
+                domainProperties = x ;
+        }
+        return x ;
+    }
+
+    /** The properties that have a range declaration. */
+    public Set<X> getRangeProperties() {
+        Set<X> x = rangeProperties ;
+        if ( x == null ) {
+            long gen = generation ;
+            x = new DenseSet<>(dict, propertyRange.keys()) ;
+            // Do not cache if the tables changed meanwhile.
+            if ( gen == generation )
+                rangeProperties = x ;
+        }
+        return x ;
+    }
+
     @Override
     public Set<X> getRange(X elt) {
         return result(propertyRange, elt) ;
@@ -0,0 +1,190 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphWrapper ;
+import org.apache.jena.sparql.core.GraphView ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.util.iterator.NiceIterator ;
+
+/** A dataset with RDFS applied to each graph, by backward inference as for {@link GraphRDFS}.
+ * <p>
+ * One setup (and one rule engine) is used for all the graphs. Each graph is
+ * accessed as a {@link GraphView} of the underlying dataset so the dataset's own
+ * quad access paths are used. {@code find(ANY, ...)} covers the default graph
+ * and each named graph; {@link Quad#unionGraph} is the union of the named graphs.
+ * Inference is within each graph, not across graphs.
+ * <p>
+ * Updates are passed to the underlying dataset.
+ */
+public class DatasetGraphRDFS extends DatasetGraphWrapper {
+    private final InferenceSetupRDFS setup ;
+    private final InferenceEngineRDFS engine ;
+
+    public DatasetGraphRDFS(DatasetGraph dsg, InferenceSetupRDFS setup) {
+        super(dsg) ;
+        this.setup = setup ;
+        this.engine = new InferenceEngineRDFS(setup) ;
+    }
+
+    public InferenceSetupRDFS getSetup() {
+        return setup ;
+    }
+
+    @Override
+    public Graph getDefaultGraph() {
+        return new GraphRDFS(setup, engine, getWrapped().getDefaultGraph()) ;
+    }
+
+    @Override
+    public Graph getGraph(Node graphNode) {
+        return new GraphRDFS(setup, engine, getWrapped().getGraph(graphNode)) ;
+    }
+
+    @Override
+    public Iterator<Quad> find() {
+        return find(Node.ANY, Node.ANY, Node.ANY, Node.ANY) ;
+    }
+
+    @Override
+    public Iterator<Quad> find(Quad quad) {
+        return find(quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+    }
+
+    @Override
+    public Iterator<Quad> find(Node g, Node s, Node p, Node o) {
+        if ( isANY(g) )
+            return new QuadsIterator(true, s, p, o) ;
+        return findInGraph(g, s, p, o) ;
+    }
+
+    @Override
+    public Iterator<Quad> findNG(Node g, Node s, Node p, Node o) {
+        if ( isANY(g) )
+            return new QuadsIterator(false, s, p, o) ;
+        if ( Quad.isDefaultGraph(g) )
+            return NiceIterator.emptyIterator() ;
+        return findInGraph(g, s, p, o) ;
+    }
+
+    @Override
+    public boolean contains(Quad quad) {
+        return contains(quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+    }
+
+    @Override
+    public boolean contains(Node g, Node s, Node p, Node o) {
+        if ( isANY(g) ) {
+            if ( find3(Quad.defaultGraphIRI).contains(s, p, o) )
+                return true ;
+            Iterator<Node> graphNodes = getWrapped().listGraphNodes() ;
+            while ( graphNodes.hasNext() ) {
+                if ( find3(graphNodes.next()).contains(s, p, o) )
+                    return true ;
+            }
+            return false ;
+        }
+        return find3(g).contains(s, p, o) ;
+    }
+
+    private ExtendedIterator<Quad> findInGraph(Node g, Node s, Node p, Node o) {
+        ExtendedIterator<Triple> iter = find3(g).find(s, p, o) ;
+        Node gn = Quad.isDefaultGraph(g) ? Quad.defaultGraphIRI : g ;
+        return iter.mapWith(t -> Quad.create(gn, t)) ;
+    }
+
+    /** Inference over one graph of the underlying dataset. */
+    private GraphRDFS.Find3_Graph find3(Node g) {
+        DatasetGraph dsg = getWrapped() ;
+        Graph graph ;
+        if ( Quad.isDefaultGraph(g) )
+            graph = GraphView.createDefaultGraph(dsg) ;
+        else if ( Quad.isUnionGraph(g) )
+            graph = GraphView.createUnionGraph(dsg) ;
+        else
+            graph = GraphView.createNamedGraph(dsg, g) ;
+        return new GraphRDFS.Find3_Graph(setup, engine, graph) ;
+    }
+
+    private static boolean isANY(Node node) {
+        return node == null || Node.ANY.equals(node) ;
+    }
+
+    /** Inferred quads of the default graph (optionally) then each named graph in turn. */
+    private class QuadsIterator extends NiceIterator<Quad> {
+        private final Node s ;
+        private final Node p ;
+        private final Node o ;
+        private boolean doDefaultGraph ;
+        private Iterator<Node> graphNodes = null ;
+        private ExtendedIterator<Quad> current = null ;
+
+        QuadsIterator(boolean includeDefaultGraph, Node s, Node p, Node o) {
+            this.doDefaultGraph = includeDefaultGraph ;
+            this.s = s ;
+            this.p = p ;
+            this.o = o ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            for ( ;; ) {
+                if ( current != null ) {
+                    if ( current.hasNext() )
+                        return true ;
+                    current.close() ;
+                    current = null ;
+                }
+                if ( doDefaultGraph ) {
+                    doDefaultGraph = false ;
+                    current = findInGraph(Quad.defaultGraphIRI, s, p, o) ;
+                    continue ;
+                }
+                if ( graphNodes == null )
+                    graphNodes = getWrapped().listGraphNodes() ;
+                if ( ! graphNodes.hasNext() )
+                    return false ;
+                current = findInGraph(graphNodes.next(), s, p, o) ;
+            }
+        }
+
+        @Override
+        public Quad next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            return current.next() ;
+        }
+
+        @Override
+        public void close() {
+            if ( current != null )
+                current.close() ;
+            current = null ;
+            doDefaultGraph = false ;
+            graphNodes = NiceIterator.emptyIterator() ;
+        }
+    }
+}
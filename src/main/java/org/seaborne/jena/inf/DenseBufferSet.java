@@ -0,0 +1,101 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.nio.IntBuffer ;
+import java.util.AbstractSet ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+/** Read-only set view of a row held in an {@link IntBuffer}, such as a memory mapped
+ * table, decoded through a {@link TermDictionary}. The row is sorted.
+ * As {@link DenseSet}, optionally includes one extra element ("self").
+ */
+class DenseBufferSet<X> extends AbstractSet<X> {
+    private final TermDictionary<X> dict ;
+    // Position 0 to limit.
+    private final IntBuffer row ;
+    // -1 for "no extra element" or if the extra element is already in the row.
+    private final int self ;
+
+    DenseBufferSet(TermDictionary<X> dict, IntBuffer row, int self) {
+        this.dict = dict ;
+        this.row = row ;
+        this.self = ( self >= 0 && binarySearch(row, 0, row.limit(), self) < 0 ) ? self : -1 ;
+    }
+
+    /** Binary search of the sorted ints in {@code buffer} from {@code start} (inclusive) to {@code end} (exclusive).
+     * Returns as {@link java.util.Arrays#binarySearch(int[], int)}.
+     */
+    static int binarySearch(IntBuffer buffer, int start, int end, int value) {
+        int lo = start ;
+        int hi = end-1 ;
+        while ( lo <= hi ) {
+            int mid = (lo+hi) >>> 1 ;
+            int v = buffer.get(mid) ;
+            if ( v < value )
+                lo = mid+1 ;
+            else if ( v > value )
+                hi = mid-1 ;
+            else
+                return mid ;
+        }
+        return -(lo+1) ;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int id = dict.id(o) ;
+        if ( id < 0 )
+            return false ;
+        return id == self || binarySearch(row, 0, row.limit(), id) >= 0 ;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return row.limit() == 0 && self < 0 ;
+    }
+
+    @Override
+    public int size() {
+        return row.limit() + ( self >= 0 ? 1 : 0 ) ;
+    }
+
+    @Override
+    public Iterator<X> iterator() {
+        return new Iterator<X>() {
+            private int idx = 0 ;
+            private final int size = size() ;
+            private final int len = row.limit() ;
+
+            @Override
+            public boolean hasNext() {
+                return idx < size ;
+            }
+
+            @Override
+            public X next() {
+                if ( idx >= size )
+                    throw new NoSuchElementException() ;
+                int id = ( idx < len ) ? row.get(idx) : self ;
+                idx++ ;
+                return dict.term(id) ;
+            }
+        } ;
+    }
+}
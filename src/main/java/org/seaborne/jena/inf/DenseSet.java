@@ -0,0 +1,84 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.AbstractSet ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+/** Read-only set view of a row of an {@link IntMultimap}, decoded through a {@link TermDictionary}.
+ * Optionally includes one extra element ("self"), which is how the "Inc" variants
+ * of {@link InfSetupRDFS} are provided without copying.
+ */
+class DenseSet<X> extends AbstractSet<X> {
+    private final TermDictionary<X> dict ;
+    private final int[] row ;
+    // -1 for "no extra element" or if the extra element is already in the row.
+    private final int self ;
+
+    DenseSet(TermDictionary<X> dict, int[] row) {
+        this(dict, row, -1) ;
+    }
+
+    DenseSet(TermDictionary<X> dict, int[] row, int self) {
+        this.dict = dict ;
+        this.row = row ;
+        this.self = ( self >= 0 && Arrays.binarySearch(row, self) < 0 ) ? self : -1 ;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int id = dict.id(o) ;
+        if ( id < 0 )
+            return false ;
+        return id == self || Arrays.binarySearch(row, id) >= 0 ;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return row.length == 0 && self < 0 ;
+    }
+
+    @Override
+    public int size() {
+        return row.length + ( self >= 0 ? 1 : 0 ) ;
+    }
+
+    @Override
+    public Iterator<X> iterator() {
+        return new Iterator<X>() {
+            private int idx = 0 ;
+            private final int size = size() ;
+
+            @Override
+            public boolean hasNext() {
+                return idx < size ;
+            }
+
+            @Override
+            public X next() {
+                if ( idx >= size )
+                    throw new NoSuchElementException() ;
+                int id = ( idx < row.length ) ? row[idx] : self ;
+                idx++ ;
+                return dict.term(id) ;
+            }
+        } ;
+    }
+}
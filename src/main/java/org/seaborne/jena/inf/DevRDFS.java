@@ -92,10 +92,13 @@ public class DevRDFS {
 
         // TDB
         
+        RDFDataMgr.read(dsg.getDefaultGraph(), DATA_FILE) ;
         InferenceSetupRDFS_TDB setup = new InferenceSetupRDFS_TDB(vocab, dsg, false) ;
-        //Graph graph = new GraphRDFS(setup, data.getGraph()) ;
-        
-        
+        Graph graph = new GraphRDFS_TDB(setup) ;
+
+        Reasoner reasoner = new GenericRuleReasoner(Rule.parseRules(rules));
+        inf = ModelFactory.createInfModel(reasoner, vocab, data).getGraph() ;
+        dwim(graph, inf, null, InfGlobal.rdfType, node("T2")) ;
     }
     
     public static void main1(String...argv) throws IOException {
@@ -0,0 +1,226 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.util.FmtUtils ;
+
+/** The plan for a {@link GraphRDFS#find}: the branch taken and the steps, in order,
+ * with the source graph operations it would issue and their estimated sizes.
+ * <p>
+ * After analyze ({@link GraphRDFS#explain(Node, Node, Node, boolean)}), each source 
+ * step also has the actual number of calls, triples and time. Source operations
+ * that depend on the data, such as probes for each result, are added as 
+ * "runtime" steps, with the varying terms shown as variables.
+ */
+public class ExplainRDFS {
+    public enum Op {
+        /** A find on the source graph. */
+        SCAN,
+        /** A contains on the source graph. */
+        PROBE,
+        /** Lookup in the type index of a hybrid GraphRDFS. */
+        INDEX,
+        /** Lookup in the type cache. */
+        CACHE,
+        /** Apply the inference engine to each triple. */
+        INFER,
+        /** Keep only triples matching the pattern. */
+        FILTER,
+        /** Remove duplicates. */
+        DISTINCT,
+        /** Results are collected before any is returned. */
+        MATERIALIZE
+    }
+
+    /** One step of a plan. Source steps have a pattern; other steps have a null pattern. */
+    public static class Step {
+        private final Op op ;
+        private final Triple pattern ;
+        private final String note ;
+        private final long estimate ;
+        // Analyze : -1 for not known.
+        long calls = -1 ;
+        long rows = -1 ;
+        long nanos = -1 ;
+
+        Step(Op op, Triple pattern, String note, long estimate) {
+            this.op = op ;
+            this.pattern = pattern ;
+            this.note = note ;
+            this.estimate = estimate ;
+        }
+
+        public Op getOp()           { return op ; }
+        public Triple getPattern()  { return pattern ; }
+        public String getNote()     { return note ; }
+        /** Estimated number of triples, or -1 if not known. */
+        public long getEstimate()   { return estimate ; }
+        /** Number of times the step was carried out, or -1 if not analyzed. */
+        public long getCalls()      { return calls ; }
+        /** Number of triples read (scans), or successful probes, or -1 if not analyzed. */
+        public long getRows()       { return rows ; }
+        /** Time in the source graph, or -1 if not analyzed. */
+        public long getNanos()      { return nanos ; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder() ;
+            sb.append(op) ;
+            if ( pattern != null )
+                sb.append(" ").append(str(pattern)) ;
+            if ( note != null )
+                sb.append(" : ").append(note) ;
+            if ( estimate >= 0 )
+                sb.append(" [est=").append(estimate).append("]") ;
+            if ( calls >= 0 )
+                sb.append(String.format(" [calls=%d rows=%d time=%.3fms]", calls, rows, nanos/1e6)) ;
+            return sb.toString() ;
+        }
+    }
+
+    private static final String Runtime = "runtime" ;
+    private static final Node varS = NodeFactory.createVariable("s") ;
+    private static final Node varO = NodeFactory.createVariable("o") ;
+
+    private final Triple pattern ;
+    private final MetricsRDFS.Branch branch ;
+    private final List<Step> steps = new ArrayList<>() ;
+    private boolean analyzed = false ;
+    private long returned = -1 ;
+    private long nanos = -1 ;
+    private long distinctSize = -1 ;
+
+    ExplainRDFS(Triple pattern, MetricsRDFS.Branch branch) {
+        this.pattern = pattern ;
+        this.branch = branch ;
+    }
+
+    Step add(Op op, Triple pattern, String note, long estimate) {
+        Step step = new Step(op, pattern, note, estimate) ;
+        steps.add(step) ;
+        return step ;
+    }
+
+    /** Start analyze: source steps record actual counts from zero. */
+    void startAnalyze() {
+        for ( Step step : steps ) {
+            if ( isSource(step.op) ) {
+                step.calls = 0 ;
+                step.rows = 0 ;
+                step.nanos = 0 ;
+            }
+        }
+    }
+
+    /** The step to record a source operation in: the first planned step for the 
+     * pattern not used yet, or else the first planned step for the pattern, or else
+     * a runtime step for operations of the same shape.
+     */
+    Step source(Op op, Node s, Node p, Node o) {
+        Triple triple = Triple.create(s, p, o) ;
+        Step first = null ;
+        for ( Step step : steps ) {
+            if ( step.op == op && triple.equals(step.pattern) ) {
+                if ( step.calls == 0 )
+                    return step ;
+                if ( first == null )
+                    first = step ;
+            }
+        }
+        if ( first != null )
+            return first ;
+        // Terms not in the find pattern vary from call to call.
+        Node s1 = ( Node.ANY.equals(s) || s.equals(pattern.getSubject()) ) ? s : varS ;
+        Node o1 = ( Node.ANY.equals(o) || o.equals(pattern.getObject()) ) ? o : varO ;
+        Triple shape = Triple.create(s1, p, o1) ;
+        for ( Step step : steps ) {
+            if ( step.op == op && Runtime.equals(step.note) && shape.equals(step.pattern) )
+                return step ;
+        }
+        Step step = add(op, shape, Runtime, -1) ;
+        step.calls = 0 ;
+        step.rows = 0 ;
+        step.nanos = 0 ;
+        return step ;
+    }
+
+    private static boolean isSource(Op op) {
+        return op == Op.SCAN || op == Op.PROBE ;
+    }
+
+    void setAnalyzed(long returned, long nanos, long distinctSize) {
+        this.analyzed = true ;
+        this.returned = returned ;
+        this.nanos = nanos ;
+        this.distinctSize = distinctSize ;
+    }
+
+    public Triple getPattern()              { return pattern ; }
+    public MetricsRDFS.Branch getBranch()   { return branch ; }
+    public List<Step> getSteps()            { return Collections.unmodifiableList(steps) ; }
+
+    /** Does the plan have a step to remove duplicates? */
+    public boolean isDistinct()             { return hasStep(Op.DISTINCT) ; }
+
+    /** Does the plan collect results before returning any? */
+    public boolean isMaterialized()         { return hasStep(Op.MATERIALIZE) ; }
+
+    public boolean isAnalyzed()             { return analyzed ; }
+    /** Number of triples returned by the find, or -1 if not analyzed. */
+    public long getReturned()               { return returned ; }
+    /** Time for the whole find, or -1 if not analyzed. */
+    public long getNanos()                  { return nanos ; }
+    /** Largest set used to remove duplicates, or -1 if not analyzed. */
+    public long getDistinctSize()           { return distinctSize ; }
+
+    private boolean hasStep(Op op) {
+        for ( Step step : steps ) {
+            if ( step.op == op )
+                return true ;
+        }
+        return false ;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder() ;
+        sb.append("find ").append(str(pattern)).append(" : ").append(branch).append("\n") ;
+        for ( Step step : steps )
+            sb.append("  ").append(step).append("\n") ;
+        if ( analyzed )
+            sb.append(String.format("  returned=%d time=%.3fms distinct=%d\n", returned, nanos/1e6, distinctSize)) ;
+        return sb.toString() ;
+    }
+
+    private static String str(Triple t) {
+        return "("+str(t.getSubject())+" "+str(t.getPredicate())+" "+str(t.getObject())+")" ;
+    }
+
+    private static String str(Node n) {
+        if ( n == null || Node.ANY.equals(n) )
+            return "ANY" ;
+        return FmtUtils.stringForNode(n) ;
+    }
+}
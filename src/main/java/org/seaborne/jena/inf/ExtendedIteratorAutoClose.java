@@ -17,13 +17,13 @@
 
 package org.seaborne.jena.inf;
 
-import java.util.Iterator ;
 import java.util.NoSuchElementException ;
 
 import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.util.iterator.NiceIterator ;
 
-/** Provide autoclose to an ExtendedIterator */ 
-public class ExtendedIteratorAutoClose<T> implements Iterator<T> {
+/** Provide autoclose to an ExtendedIterator: it is closed when used up. */ 
+public class ExtendedIteratorAutoClose<T> extends NiceIterator<T> {
     private ExtendedIterator<T> underlying ;
 
     public ExtendedIteratorAutoClose(ExtendedIterator<T> underlying) {
@@ -43,5 +43,9 @@ public class ExtendedIteratorAutoClose<T> implements Iterator<T> {
         try { return underlying.next() ; }
         catch (NoSuchElementException ex) { underlying.close() ; throw ex ; }
     }
-}
 
+    @Override
+    public void close() {
+        underlying.close() ;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.ArrayList ;
+import java.util.Collection ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.util.iterator.NiceIterator ;
+
+/** The union of {@code graph.find(s, p, o)} for a number of predicates, with each
+ * result's predicate replaced by one given predicate. This is a single, flat
+ * iterator however many predicates there are.
+ * <p>
+ * Scans are either opened as needed ("lazy") or all opened at the start.
+ * Closing the iterator closes any scans that are open.
+ */
+public class FindUnionIterator extends NiceIterator<Triple> {
+    private final Graph graph ;
+    private final Node subject ;
+    private final Node object ;
+    private final Node[] predicates ;
+    private final Node rewriteTo ;
+    // Eager: all scans, opened at the start.
+    private final ExtendedIterator<Triple>[] scans ;
+    private int idx = 0 ;
+    private ExtendedIterator<Triple> current = null ;
+
+    /** Lazy union of {@code find(subject, p, object)} for each of {@code predicates}, rewritten to {@code rewriteTo}. */
+    public FindUnionIterator(Graph graph, Node subject, Collection<Node> predicates, Node object, Node rewriteTo) {
+        this(graph, subject, predicates, object, rewriteTo, true) ;
+    }
+
+    @SuppressWarnings("unchecked")
+    public FindUnionIterator(Graph graph, Node subject, Collection<Node> predicates, Node object, Node rewriteTo, boolean lazy) {
+        this.graph = graph ;
+        this.subject = subject ;
+        this.object = object ;
+        this.predicates = predicates.toArray(new Node[predicates.size()]) ;
+        this.rewriteTo = rewriteTo ;
+        if ( lazy ) {
+            this.scans = null ;
+        } else {
+            List<ExtendedIterator<Triple>> x = new ArrayList<>(this.predicates.length) ;
+            for ( Node p : this.predicates )
+                x.add(graph.find(subject, p, object)) ;
+            this.scans = x.toArray(new ExtendedIterator[x.size()]) ;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        for ( ;; ) {
+            if ( current == null ) {
+                if ( idx >= predicates.length )
+                    return false ;
+                current = ( scans != null ) ? scans[idx] : graph.find(subject, predicates[idx], object) ;
+                if ( scans != null )
+                    scans[idx] = null ;
+                idx++ ;
+            }
+            if ( current.hasNext() )
+                return true ;
+            current.close() ;
+            current = null ;
+        }
+    }
+
+    @Override
+    public Triple next() {
+        if ( ! hasNext() )
+            throw new NoSuchElementException() ;
+        Triple triple = current.next() ;
+        if ( rewriteTo == null || rewriteTo.equals(triple.getPredicate()) )
+            return triple ;
+        return Triple.create(triple.getSubject(), rewriteTo, triple.getObject()) ;
+    }
+
+    @Override
+    public void close() {
+        if ( current != null )
+            current.close() ;
+        current = null ;
+        if ( scans != null ) {
+            for ( int i = idx ; i < scans.length ; i++ ) {
+                if ( scans[i] != null )
+                    scans[i].close() ;
+                scans[i] = null ;
+            }
+        }
+        idx = predicates.length ;
+    }
+}
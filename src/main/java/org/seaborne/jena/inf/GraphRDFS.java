@@ -21,22 +21,25 @@ import static org.seaborne.jena.inf.InfGlobal.rdfType ;
 import static org.seaborne.jena.inf.InfGlobal.rdfsDomain ;
 import static org.seaborne.jena.inf.InfGlobal.rdfsRange ;
 import static org.seaborne.jena.inf.InfGlobal.rdfsSubClassOf ;
-import static org.seaborne.jena.inf.Lib8.stream ;
 
 import java.util.* ;
-import java.util.stream.Stream ;
+import java.util.concurrent.atomic.LongAdder ;
+import java.util.function.Consumer ;
 
-import org.apache.jena.atlas.iterator.SingletonIterator ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
 import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.GraphStatisticsHandler ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.sparql.graph.GraphWrapper ;
 import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.util.iterator.NiceIterator ;
 import org.apache.jena.util.iterator.NullIterator ;
+import org.apache.jena.util.iterator.SingletonIterator ;
 import org.apache.jena.util.iterator.WrappedIterator ;
+import org.seaborne.jena.inf.ExplainRDFS.Op ;
 
 public class GraphRDFS extends GraphWrapper {
     private static Logger log = LoggerFactory.getLogger(GraphRDFS.class) ;
@@ -45,9 +48,50 @@ public class GraphRDFS extends GraphWrapper {
     private InferenceSetupRDFS setup ;
 
     public GraphRDFS(InferenceSetupRDFS setup, Graph graph) {
+        this(setup, graph, null, null) ;
+    }
+
+    /** GraphRDFS with a cache of the inferred types of up to {@code typeCacheSize} subjects. */
+    public GraphRDFS(InferenceSetupRDFS setup, Graph graph, int typeCacheSize) {
+        this(setup, graph, new TypeCacheRDFS(setup, typeCacheSize), null) ;
+    }
+
+    /** Hybrid GraphRDFS: rdf:type from an index of all types, other predicates by inference.
+     * @see TypeIndexRDFS 
+     */
+    public static GraphRDFS createHybrid(InferenceSetupRDFS setup, Graph graph) {
+        return new GraphRDFS(setup, graph, null, new TypeIndexRDFS(setup, graph)) ;
+    }
+
+    /** GraphRDFS using an engine shared with other graphs. */
+    GraphRDFS(InferenceSetupRDFS setup, InferenceEngineRDFS engine, Graph graph) {
+        this(setup, engine, graph, null, null) ;
+    }
+
+    private GraphRDFS(InferenceSetupRDFS setup, Graph graph, TypeCacheRDFS typeCache, TypeIndexRDFS typeIndex) {
+        this(setup, new InferenceEngineRDFS(setup), graph, typeCache, typeIndex) ;
+    }
+
+    private GraphRDFS(InferenceSetupRDFS setup, InferenceEngineRDFS engine, Graph graph, TypeCacheRDFS typeCache, TypeIndexRDFS typeIndex) {
         super(graph) ;
         this.setup = setup ;
-        fGraph = new Find3_Graph(setup, graph) ;
+        fGraph = new Find3_Graph(setup, engine, graph, typeCache, typeIndex) ;
+        if ( typeCache != null )
+            typeCache.register(graph) ;
+    }
+
+    /** The type cache, or null if there isn't one. */
+    public TypeCacheRDFS getTypeCache() {
+        return fGraph.typeCache ;
+    }
+
+    @Override
+    public void close() {
+        if ( fGraph.typeCache != null )
+            fGraph.typeCache.unregister(get()) ;
+        if ( fGraph.typeIndex != null )
+            fGraph.typeIndex.close() ;
+        super.close() ;
     }
     
     @Override
@@ -57,39 +101,398 @@ public class GraphRDFS extends GraphWrapper {
 
     @Override
     public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
-        Iterator<Triple> iter = fGraph.find(s, p, o).iterator() ;
-        return WrappedIterator.create(iter) ;
+        return fGraph.find(s, p, o) ;
     }
 
-    interface StreamGraph<Y, X> {
-        // Stream?
-        Stream<Y> find(X s, X p, X o) ;
+    @Override
+    public boolean contains(Triple t) {
+        return contains(t.getMatchSubject(), t.getMatchPredicate(), t.getMatchObject()) ;
     }
 
-    static class Find3_Graph implements StreamGraph<Triple, Node> {
+    @Override
+    public boolean contains(Node s, Node p, Node o) {
+        return fGraph.contains(s, p, o) ;
+    }
+
+    /** Estimates including inferred triples.
+     * Used to order BGPs over this graph if {@link StageGeneratorRDFS} is registered. 
+     */
+    @Override
+    public GraphStatisticsHandler getStatisticsHandler() {
+        return new GraphRDFSStatistics(setup, get()) ;
+    }
+
+    /** How a lookup that needs only some predicates is done. */
+    public enum AccessPath {
+        /** One scan of all the triples with the term, e.g. (X ? ?). */
+        SCAN,
+        /** One lookup per predicate of interest, e.g. (X p ?). */
+        PROBE
+    }
+
+    /** Number of times each access path has been chosen, for diagnostics. */
+    public Map<AccessPath, Long> getAccessPathCounts() {
+        return fGraph.getAccessPathCounts() ;
+    }
+
+    /** The plan for {@code find(s, p, o)}, without executing it. */
+    public ExplainRDFS explain(Node s, Node p, Node o) {
+        return explain(s, p, o, false) ;
+    }
+
+    /** The plan for {@code find(s, p, o)}. If {@code analyze} is true, the find is executed,
+     * all results read, and the actual calls, triples and times recorded in the plan.
+     */
+    public ExplainRDFS explain(Node s, Node p, Node o, boolean analyze) {
+        return fGraph.explain(s, p, o, analyze) ;
+    }
+
+    static class Find3_Graph {
         private final Graph graph ;
         private final InferenceSetupRDFS setup ;
-        private final InferenceProcessorRDFS engine ;
+        // Reentrant - shared by concurrent finds.
+        private final InferenceEngineRDFS engine ;
+
+        // Access path choice.
+        // Used when the graph has no statistics: probe if there are at most this many predicates. 
+        static final int ProbeThreshold = 8 ;
+        // Cost of a probe relative to reading one triple of a scan.
+        static final int ProbeCost = 2 ;
+        private final LongAdder[] accessPathCounts ;
+
+        // Optional: may be null.
+        private final TypeCacheRDFS typeCache ;
+        // Hybrid mode: all rdf:type triples. Optional: may be null.
+        private final TypeIndexRDFS typeIndex ;
+        // Per-find metrics, for a Find3_Graph made for one find only. Normally null.
+        private final FindStats stats ;
 
         Find3_Graph(InferenceSetupRDFS setup, Graph graph) {
+            this(setup, graph, null, null) ;
+        }
+
+        Find3_Graph(InferenceSetupRDFS setup, Graph graph, TypeCacheRDFS typeCache, TypeIndexRDFS typeIndex) {
+            this(setup, new InferenceEngineRDFS(setup), graph, typeCache, typeIndex) ;
+        }
+
+        /** Find3_Graph using an engine shared with other graphs. */ 
+        Find3_Graph(InferenceSetupRDFS setup, InferenceEngineRDFS engine, Graph graph) {
+            this(setup, engine, graph, null, null) ;
+        }
+
+        private Find3_Graph(InferenceSetupRDFS setup, InferenceEngineRDFS engine, Graph graph, TypeCacheRDFS typeCache, TypeIndexRDFS typeIndex) {
             this.setup = setup ;
-            this.engine = new InferenceProcessorRDFS(setup) ;
+            this.typeCache = typeCache ;
+            this.typeIndex = typeIndex ;
+            this.engine = engine ;
             this.graph = graph ;
+            this.accessPathCounts = new LongAdder[AccessPath.values().length] ;
+            for ( int i = 0 ; i < accessPathCounts.length ; i++ )
+                accessPathCounts[i] = new LongAdder() ;
+            this.stats = null ;
         }
 
-        @Override
-        public Stream<Triple> find(Node s, Node p, Node o) {
-            // Quick route to conversion.
-            return find2(s,p,o) ;
+        /** Find3_Graph for one metered find, over a graph that counts the operations on the source. */ 
+        private Find3_Graph(Find3_Graph other, FindStats stats) {
+            this.setup = other.setup ;
+            this.typeCache = other.typeCache ;
+            this.typeIndex = other.typeIndex ;
+            this.engine = other.engine ;
+            this.accessPathCounts = other.accessPathCounts ;
+            this.graph = new CountingGraph(other.graph, stats) ;
+            this.stats = stats ;
+        }
+
+        Map<AccessPath, Long> getAccessPathCounts() {
+            Map<AccessPath, Long> x = new EnumMap<>(AccessPath.class) ;
+            for ( AccessPath path : AccessPath.values() )
+                x.put(path, accessPathCounts[path.ordinal()].sum()) ;
+            return x ;
+        }
+
+        /** Choose between a scan of (s p o) and a probe for each of {@code numProbes} predicates. */
+        AccessPath chooseAccessPath(Node s, Node p, Node o, int numProbes) {
+            long estimate = estimate(s, p, o) ;
+            AccessPath path = accessPath(estimate, numProbes) ;
+            accessPathCounts[path.ordinal()].increment() ;
+            if ( log.isDebugEnabled() )
+                log.debug("Access path ({} {} {}) : estimate={} probes={} -> {}", s, p, o, estimate, numProbes, path) ;
+            return path ;
         }
 
-        // Iter?
-        protected Stream<Triple> sourceFind(Node s, Node p, Node o) {
-            ExtendedIterator<Triple> iter = graph.find(s,p,o) ;
-            return stream(new ExtendedIteratorAutoClose<>(iter)) ;
+        /** The access path for an estimated size of the scan (-1 for not known) and a number of probes. */
+        static AccessPath accessPath(long estimate, int numProbes) {
+            if ( estimate < 0 )
+                return ( numProbes <= ProbeThreshold ) ? AccessPath.PROBE : AccessPath.SCAN ;
+            return ( (long)numProbes * ProbeCost <= estimate ) ? AccessPath.PROBE : AccessPath.SCAN ;
+        }
+
+        /** Estimated number of matches, or -1 if not known. */
+        private long estimate(Node s, Node p, Node o) {
+            GraphStatisticsHandler stats = graph.getStatisticsHandler() ;
+            if ( stats == null )
+                return -1 ;
+            try {
+                return stats.getStatistic(s, p, o) ;
+            } catch (UnsupportedOperationException ex) {
+                return -1 ;
+            }
         }
 
-        private Stream<Triple> find2(Node _subject, Node _predicate, Node _object) {
+        /** Find, as a pipeline of iterators over the source graph.
+         * Closing the iterator closes any open scans of the source graph.
+         */
+        public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+            MetricsRDFS metrics = InfMetrics.get() ;
+            if ( metrics == null )
+                return find2(s,p,o) ;
+            FindStats findStats = new FindStats(metrics, branch(any(s), any(p), any(o))) ;
+            Find3_Graph f = new Find3_Graph(this, findStats) ;
+            return new MeteredIterator(f.find2(s, p, o), findStats) ;
+        }
+
+        /** The branch of find2 for a pattern. */
+        static MetricsRDFS.Branch branch(Node subject, Node predicate, Node object) {
+            if ( rdfType.equals(predicate) ) {
+                if ( isTerm(subject) )
+                    return isTerm(object) ? MetricsRDFS.Branch.X_type_T : MetricsRDFS.Branch.X_type_ANY ;
+                return isTerm(object) ? MetricsRDFS.Branch.ANY_type_T : MetricsRDFS.Branch.ANY_type_ANY ;
+            }
+            if ( isANY(predicate) ) {
+                if ( isTerm(subject) )
+                    return isTerm(object) ? MetricsRDFS.Branch.X_ANY_T : MetricsRDFS.Branch.X_ANY_ANY ;
+                return isTerm(object) ? MetricsRDFS.Branch.ANY_ANY_T : MetricsRDFS.Branch.ANY_ANY_ANY ;
+            }
+            return MetricsRDFS.Branch.subproperty ;
+        }
+
+        /** Contains, by existence probes, stopping at the first one that succeeds.
+         * Patterns with ANY, and setups with RDFS data in the results, use find.
+         */
+        public boolean contains(Node s, Node p, Node o) {
+            Node subject = any(s) ;
+            Node predicate = any(p) ;
+            Node object = any(o) ;
+            if ( ! isTerm(subject) || ! isTerm(predicate) || ! isTerm(object) || setup.includeDerivedDataRDFS() ) {
+                ExtendedIterator<Triple> iter = find(subject, predicate, object) ;
+                try {
+                    return iter.hasNext() ;
+                } finally { iter.close() ; }
+            }
+            // Asserted.
+            if ( graph.contains(subject, predicate, object) )
+                return true ;
+            if ( rdfType.equals(predicate) )
+                return containsType(subject, object) ;
+            // Only by subproperty.
+            for ( Node p2 : setup.getSubProperties(predicate) ) {
+                if ( graph.contains(subject, p2, object) )
+                    return true ;
+            }
+            return false ;
+        }
+
+        private boolean containsType(Node subject, Node type) {
+            if ( typeIndex != null )
+                return typeIndex.contains(subject, type) ;
+            if ( typeCache != null )
+                return typeCache.get(subject, this::inferredTypes).contains(type) ;
+            Set<Node> types = subTypes(type) ;
+            // Asserted type of a subclass.
+            for ( Node t : types ) {
+                if ( graph.contains(subject, rdfType, t) )
+                    return true ;
+            }
+            // Domain witness: (subject p ?)
+            for ( Node t : types ) {
+                for ( Node p : setup.getPropertiesByDomain(t) ) {
+                    if ( graph.contains(subject, p, Node.ANY) )
+                        return true ;
+                }
+            }
+            // Range witness: (? p subject)
+            if ( subject.isLiteral() )
+                return false ;
+            for ( Node t : types ) {
+                for ( Node p : setup.getPropertiesByRange(t) ) {
+                    if ( graph.contains(Node.ANY, p, subject) )
+                        return true ;
+                }
+            }
+            return false ;
+        }
+
+        /** The plan for find(s, p, o), following the same choices as find2.
+         * If analyze, execute it over a graph that records each source operation in the plan.
+         */
+        ExplainRDFS explain(Node s, Node p, Node o, boolean analyze) {
+            Node subject = any(s) ;
+            Node predicate = any(p) ;
+            Node object = any(o) ;
+            ExplainRDFS explain = new ExplainRDFS(Triple.create(subject, predicate, object), branch(subject, predicate, object)) ;
+            plan(explain, subject, predicate, object) ;
+            if ( analyze )
+                analyze(explain, subject, predicate, object) ;
+            return explain ;
+        }
+
+        private void analyze(ExplainRDFS explain, Node subject, Node predicate, Node object) {
+            FindStats findStats = new FindStats(null, explain.getBranch()) ;
+            findStats.explain = explain ;
+            explain.startAnalyze() ;
+            Find3_Graph f = new Find3_Graph(this, findStats) ;
+            long start = System.nanoTime() ;
+            long count = 0 ;
+            ExtendedIterator<Triple> iter = f.find2(subject, predicate, object) ;
+            try {
+                while ( iter.hasNext() ) {
+                    iter.next() ;
+                    count++ ;
+                }
+            } finally { iter.close() ; }
+            explain.setAnalyzed(count, System.nanoTime()-start, findStats.distinctSize()) ;
+        }
+
+        private void plan(ExplainRDFS x, Node subject, Node predicate, Node object) {
+            switch (x.getBranch()) {
+                case X_type_T :
+                    if ( typeIndex != null ) {
+                        x.add(Op.INDEX, null, "contains", -1) ;
+                        return ;
+                    }
+                    if ( typeCache != null ) {
+                        x.add(Op.CACHE, null, "types of the subject; on a miss:", -1) ;
+                        planTypes(x, subject) ;
+                        return ;
+                    }
+                    planSource(x, Op.PROBE, subject, rdfType, object, "asserted; later steps stop when the type is found") ;
+                    planTypes(x, subject) ;
+                    return ;
+                case X_type_ANY :
+                    if ( typeIndex != null ) {
+                        x.add(Op.INDEX, null, "types of the subject", -1) ;
+                        return ;
+                    }
+                    if ( typeCache != null )
+                        x.add(Op.CACHE, null, "types of the subject; on a miss:", -1) ;
+                    planTypes(x, subject) ;
+                    return ;
+                case ANY_type_T :
+                    if ( typeIndex != null ) {
+                        x.add(Op.INDEX, null, "instances of the class", -1) ;
+                        return ;
+                    }
+                    planInstances(x, object) ;
+                    return ;
+                case ANY_type_ANY :
+                    if ( typeIndex != null ) {
+                        x.add(Op.INDEX, null, "all rdf:type triples", -1) ;
+                        return ;
+                    }
+                    planSource(x, Op.SCAN, Node.ANY, Node.ANY, Node.ANY, null) ;
+                    planInfFilter(x, "rdf:type") ;
+                    return ;
+                case X_ANY_T :
+                case X_ANY_ANY :
+                    planSource(x, Op.SCAN, subject, Node.ANY, Node.ANY, null) ;
+                    if ( setup.hasRangeDeclarations() ) {
+                        Set<Node> rangeProperties = setup.getRangeProperties() ;
+                        if ( ! setup.includeDerivedDataRDFS() &&
+                             accessPath(estimate(Node.ANY, Node.ANY, subject), rangeProperties.size()) == AccessPath.PROBE ) {
+                            for ( Node p : rangeProperties )
+                                planSource(x, Op.SCAN, Node.ANY, p, subject, "range") ;
+                        } else
+                            planSource(x, Op.SCAN, Node.ANY, Node.ANY, subject, "range") ;
+                    }
+                    planInfFilter(x, isTerm(object) ? "subject and object" : "subject") ;
+                    return ;
+                case ANY_ANY_T :
+                    planSource(x, Op.SCAN, Node.ANY, Node.ANY, object, null) ;
+                    x.add(Op.FILTER, null, "drop rdf:type", -1) ;
+                    planInstances(x, object) ;
+                    if ( setup.includeDerivedDataRDFS() ) {
+                        planSource(x, Op.SCAN, Node.ANY, rdfsRange, object, null) ;
+                        planSource(x, Op.SCAN, Node.ANY, rdfsDomain, object, null) ;
+                        planSource(x, Op.SCAN, Node.ANY, rdfsRange, object, null) ;
+                        planSource(x, Op.SCAN, object, rdfsSubClassOf, Node.ANY, null) ;
+                        planSource(x, Op.SCAN, Node.ANY, rdfsSubClassOf, object, null) ;
+                    }
+                    planInfFilter(x, "object") ;
+                    x.add(Op.DISTINCT, null, "set of all results", -1) ;
+                    return ;
+                case ANY_ANY_ANY :
+                    planSource(x, Op.SCAN, Node.ANY, Node.ANY, Node.ANY, null) ;
+                    x.add(Op.INFER, null, null, -1) ;
+                    if ( setup.includeDerivedDataRDFS() )
+                        x.add(Op.DISTINCT, null, "set of all results", -1) ;
+                    return ;
+                case subproperty :
+                    planSource(x, Op.SCAN, subject, predicate, object, null) ;
+                    Set<Node> predicates = setup.getSubProperties(predicate) ;
+                    if ( predicates == null )
+                        return ;
+                    for ( Node p : predicates )
+                        planSource(x, Op.SCAN, subject, p, object, "rewritten to "+predicate) ;
+                    return ;
+            }
+        }
+
+        private void planSource(ExplainRDFS x, Op op, Node s, Node p, Node o, String note) {
+            x.add(op, Triple.create(s, p, o), note, estimate(s, p, o)) ;
+        }
+
+        private void planInfFilter(ExplainRDFS x, String filter) {
+            x.add(Op.INFER, null, null, -1) ;
+            x.add(Op.FILTER, null, filter, -1) ;
+        }
+
+        /** As inferredTypes. */
+        private void planTypes(ExplainRDFS x, Node subject) {
+            if ( setup.hasRangeDeclarations() ) {
+                Set<Node> rangeProperties = setup.getRangeProperties() ;
+                if ( accessPath(estimate(Node.ANY, Node.ANY, subject), rangeProperties.size()) == AccessPath.PROBE ) {
+                    for ( Node p : rangeProperties )
+                        planSource(x, Op.PROBE, Node.ANY, p, subject, "range") ;
+                } else
+                    planSource(x, Op.SCAN, Node.ANY, Node.ANY, subject, "range") ;
+            }
+            if ( setup.hasDomainDeclarations() ) {
+                Set<Node> domainProperties = setup.getDomainProperties() ;
+                if ( accessPath(estimate(subject, Node.ANY, Node.ANY), domainProperties.size()) == AccessPath.PROBE ) {
+                    for ( Node p : domainProperties )
+                        planSource(x, Op.PROBE, subject, p, Node.ANY, "domain") ;
+                } else
+                    planSource(x, Op.SCAN, subject, Node.ANY, Node.ANY, "domain") ;
+            }
+            planSource(x, Op.SCAN, subject, rdfType, Node.ANY, "asserted") ;
+            x.add(Op.INFER, null, "superclasses", -1) ;
+            x.add(Op.MATERIALIZE, null, "set of types", -1) ;
+        }
+
+        /** As find_ANY_type_T without a type index. */
+        private void planInstances(ExplainRDFS x, Node type) {
+            Set<Node> types = subTypes(type) ;
+            Set<Node> domainPredicates = new LinkedHashSet<>() ;
+            Set<Node> rangePredicates = new LinkedHashSet<>() ;
+            for ( Node t : types ) {
+                domainPredicates.addAll(setup.getPropertiesByDomain(t)) ;
+                rangePredicates.addAll(setup.getPropertiesByRange(t)) ;
+            }
+            for ( Node t : types )
+                planSource(x, Op.SCAN, Node.ANY, rdfType, t, "instances") ;
+            for ( Node p : domainPredicates )
+                planSource(x, Op.SCAN, Node.ANY, p, Node.ANY, "domain: subjects") ;
+            for ( Node p : rangePredicates )
+                planSource(x, Op.SCAN, Node.ANY, p, Node.ANY, "range: objects") ;
+            if ( types.size()+domainPredicates.size()+rangePredicates.size() > 1 )
+                x.add(Op.DISTINCT, null, "probe for each result whether an earlier scan found it", -1) ;
+        }
+
+        protected ExtendedIterator<Triple> sourceFind(Node s, Node p, Node o) {
+            return graph.find(s,p,o) ;
+        }
+
+        private ExtendedIterator<Triple> find2(Node _subject, Node _predicate, Node _object) {
             //log.info("find("+_subject+", "+_predicate+", "+_object+")") ;
             Node subject = any(_subject) ;
             Node predicate = any(_predicate) ;
@@ -129,201 +532,211 @@ public class GraphRDFS extends GraphWrapper {
             return find_subproperty(subject, predicate, object) ; 
         }
 
-        private Stream<Triple> find_subproperty(Node subject, Node predicate, Node object) {
+        private ExtendedIterator<Triple> find_subproperty(Node subject, Node predicate, Node object) {
             // Find with subproperty
             // We assume no subproperty of rdf:type
             Set<Node> predicates = setup.getSubProperties(predicate) ;
             if ( predicates == null || predicates.isEmpty() )
                 return sourceFind(subject, predicate, object) ;
 
-            // Hard work, not scalable.
-            //Don't forget predicate itself!
-            // XXX Rewrite
-            Stream<Triple> triples = sourceFind(subject, predicate, object) ;
-
-            for ( Node p : predicates ) {
-                Stream<Triple> stream = sourceFind(subject, p, object) ;
-                stream = stream.map(triple -> Triple.create(triple.getSubject(), predicate, triple.getObject()) ) ;
-                triples = Stream.concat(triples, stream) ;
-            }
-            return triples ;
-
+            // One flat union: the predicate itself, then each subproperty, rewritten to the predicate.
+            List<Node> x = new ArrayList<>(predicates.size()+1) ;
+            x.add(predicate) ;
+            x.addAll(predicates) ;
+            return new FindUnionIterator(graph, subject, x, object, predicate) ;
         }
 
-        private Iterator<Triple> singletonIterator(Node s, Node p, Node o) {
+        private ExtendedIterator<Triple> singletonIterator(Node s, Node p, Node o) {
             return new SingletonIterator<>(Triple.create(s, p, o)) ;
         }
 
-        private Iterator<Triple> nullIterator() {
-            return new NullIterator<>() ;
+        private ExtendedIterator<Triple> nullIterator() {
+            return NullIterator.instance() ;
         }
 
-        private Stream<Triple> find_X_type_T(Node subject, Node object) {
+        private ExtendedIterator<Triple> find_X_type_T(Node subject, Node object) {
+            if ( typeIndex != null ) {
+                if ( typeIndex.contains(subject, object) )
+                    return singletonIterator(subject, rdfType, object) ;
+                return nullIterator() ;
+            }
+            if ( typeCache != null ) {
+                if ( typeCache.get(subject, this::inferredTypes).contains(object) )
+                    return singletonIterator(subject, rdfType, object) ;
+                return nullIterator() ;
+            }
             // XXX Check if accumulation is the correct approach 
             // Don't need to accumate. Find on insertion.
             if (graph.contains(subject, rdfType, object) )
-                return Stream.of(Triple.create(subject, rdfType, object)) ;
+                return singletonIterator(subject, rdfType, object) ;
             Set<Node> types = new HashSet<>() ;
             accTypesRange(types, subject) ;
             if ( types.contains(object) )
-                return Stream.of(Triple.create(subject, rdfType, object)) ;
+                return singletonIterator(subject, rdfType, object) ;
             accTypesDomain(types, subject) ;
             if ( types.contains(object) )
-                return Stream.of(Triple.create(subject, rdfType, object)) ;
+                return singletonIterator(subject, rdfType, object) ;
             accTypes(types, subject) ;
             // expand supertypes
             types = superTypes(types) ;
             if ( types.contains(object) )
-                return Stream.of(Triple.create(subject, rdfType, object)) ;
-            return Stream.empty() ;
+                return singletonIterator(subject, rdfType, object) ;
+            return nullIterator() ;
         }
 
-        private Stream<Triple> find_X_type_ANY(Node subject) {
+        private ExtendedIterator<Triple> find_X_type_ANY(Node subject) {
+            Set<Node> types ;
+            if ( typeIndex != null )
+                types = typeIndex.getTypes(subject) ;
+            else if ( typeCache != null )
+                types = typeCache.get(subject, this::inferredTypes) ;
+            else
+                types = inferredTypes(subject) ;
+            return WrappedIterator.create(types.iterator()).mapWith(type -> Triple.create(subject, rdfType, type)) ; 
+        }
+
+        /** All the types of a subject. */
+        private Set<Node> inferredTypes(Node subject) {
             // XXX Check if accumulation is the correct approach 
             Set<Node> types = new HashSet<>() ;
             accTypesRange(types, subject) ;
             accTypesDomain(types, subject) ;
             accTypes(types, subject) ;
             // expand supertypes
-            types = superTypes(types) ;
-            return types.stream().map( type -> Triple.create(subject, rdfType, type)) ; 
+            return Collections.unmodifiableSet(superTypes(types)) ;
         }
 
-        private Stream<Triple> find_ANY_type_T(Node type) {
-            // Fast path no subClasses
+        private ExtendedIterator<Triple> find_ANY_type_T(Node type) {
+            if ( typeIndex != null )
+                return WrappedIterator.create(typeIndex.getInstances(type).iterator()).mapWith(x -> Triple.create(x, rdfType, type)) ;
+            // Streamed: instances are found as the scans proceed.
             Set<Node> types = subTypes(type) ;
-            Set<Triple> triples = new HashSet<>() ;
-
-            accInstances(triples, types, type) ;
-            accInstancesRange(triples, types, type) ;
-            accInstancesDomain(triples, types, type) ;
-            return triples.stream() ;
+            Set<Node> domainPredicates = new LinkedHashSet<>() ;
+            Set<Node> rangePredicates = new LinkedHashSet<>() ;
+            for ( Node t : types ) {
+                domainPredicates.addAll(setup.getPropertiesByDomain(t)) ;
+                rangePredicates.addAll(setup.getPropertiesByRange(t)) ;
+            }
+            return new InstancesIterator(graph, types, domainPredicates, rangePredicates, stats).mapWith(x -> Triple.create(x, rdfType, type)) ;
         }
 
-        private Stream<Triple> find_ANY_type_ANY() {
+        private ExtendedIterator<Triple> find_ANY_type_ANY() {
+            if ( typeIndex != null )
+                return WrappedIterator.create(typeIndex.all().iterator()) ;
             // Better?
             // Duplicates?
-            // XXX InferenceProcessorStreamRDFS as a stream
-            Stream<Triple> stream = sourceFind(Node.ANY, Node.ANY, Node.ANY) ;
-            stream = infFilter(stream, null, rdfType, null) ;
-            return stream ;
+            ExtendedIterator<Triple> iter = sourceFind(Node.ANY, Node.ANY, Node.ANY) ;
+            return infFilter(iter, null, rdfType, null) ;
         }
 
-        private Stream<Triple> find_X_ANY_T(Node subject, Node object) {
+        private ExtendedIterator<Triple> find_X_ANY_T(Node subject, Node object) {
             // Start at X.
             // (X ? ?) - inference - project "X ? T"
             // also (? ? X) if there is a range clause. 
-            Stream<Triple> stream = sourceFind(subject, Node.ANY, Node.ANY) ;
+            ExtendedIterator<Triple> iter = sourceFind(subject, Node.ANY, Node.ANY) ;
             // + reverse (used in object position and there is a range clause)
             // domain was taken care of above.
-            if ( setup.hasRangeDeclarations() )
-                stream = Stream.concat(stream, sourceFind(Node.ANY, Node.ANY, subject)) ;
-            return infFilter(stream, subject, Node.ANY, object) ;
+            if ( setup.hasRangeDeclarations() ) {
+                // Without RDFS data in the results, only triples with a range
+                // declaration contribute triples with subject X.
+                Set<Node> rangeProperties = setup.getRangeProperties() ;
+                if ( ! setup.includeDerivedDataRDFS() &&
+                     chooseAccessPath(Node.ANY, Node.ANY, subject, rangeProperties.size()) == AccessPath.PROBE ) {
+                    iter = andThen(iter, new FindUnionIterator(graph, Node.ANY, rangeProperties, subject, null)) ;
+                } else
+                    iter = andThen(iter, sourceFind(Node.ANY, Node.ANY, subject)) ;
+            }
+            return infFilter(iter, subject, Node.ANY, object) ;
         }
 
-        private Stream<Triple> find_X_ANY_ANY(Node subject) {
+        private ExtendedIterator<Triple> find_X_ANY_ANY(Node subject) {
             // Can we do better?
             return find_X_ANY_T(subject, Node.ANY) ;
         }
 
-        private Stream<Triple> find_ANY_ANY_T(Node object) {
-            Stream<Triple> stream = sourceFind(Node.ANY, Node.ANY, object) ;
-            stream = stream.filter( triple -> ! triple.getPredicate().equals(rdfType))  ;
+        private ExtendedIterator<Triple> find_ANY_ANY_T(Node object) {
+            ExtendedIterator<Triple> iter = sourceFind(Node.ANY, Node.ANY, object) ;
+            iter = iter.filterDrop(triple -> triple.getPredicate().equals(rdfType))  ;
             // and get via inference.
             // Exclude rdf:type and do by inference?
-            stream = Stream.concat(stream, find_ANY_type_T(object)) ;
+            iter = andThen(iter, find_ANY_type_T(object)) ;
 
             // ? ? P (range) does not find :x a :P when :P is a class
             // and "some p range P"
             // Include from setup?
-            boolean ensureDistinct = false ;
             if ( setup.includeDerivedDataRDFS() ) {
                 // These cause duplicates.
-                ensureDistinct = true ;
-                stream = Stream.concat(stream, sourceFind(Node.ANY, rdfsRange, object)) ;
-                stream = Stream.concat(stream, sourceFind(Node.ANY, rdfsDomain, object)) ;
-                stream = Stream.concat(stream, sourceFind(Node.ANY, rdfsRange, object)) ;
-                stream = Stream.concat(stream, sourceFind(object, rdfsSubClassOf, Node.ANY)) ;
-                stream = Stream.concat(stream, sourceFind(Node.ANY, rdfsSubClassOf, object)) ;
+                iter = andThen(iter, sourceFind(Node.ANY, rdfsRange, object)) ;
+                iter = andThen(iter, sourceFind(Node.ANY, rdfsDomain, object)) ;
+                iter = andThen(iter, sourceFind(Node.ANY, rdfsRange, object)) ;
+                iter = andThen(iter, sourceFind(object, rdfsSubClassOf, Node.ANY)) ;
+                iter = andThen(iter, sourceFind(Node.ANY, rdfsSubClassOf, object)) ;
             }
-            return infFilter(stream, Node.ANY, Node.ANY, object).distinct() ;
+            return distinct(infFilter(iter, Node.ANY, Node.ANY, object)) ;
         }
 
-        //    private static <X> Iterator<X> distinct(Iterator<X> iter) {
-        //        return Iter.distinct(iter) ;
-        //    }
-
-        private Stream<Triple> find_ANY_ANY_ANY() {
-            Stream<Triple> stream = sourceFind(Node.ANY, Node.ANY, Node.ANY) ;
+        private ExtendedIterator<Triple> find_ANY_ANY_ANY() {
+            ExtendedIterator<Triple> iter = sourceFind(Node.ANY, Node.ANY, Node.ANY) ;
             // XXX Rewrite
             //engine.process
             // sequential.
-            stream = inf(stream) ;
+            iter = inf(iter) ;
             if ( setup.includeDerivedDataRDFS() )
-                stream = stream.distinct() ;
-            return stream ;
+                iter = distinct(iter) ;
+            return iter ;
         }
 
-        private Stream<Triple> infFilter(Stream<Triple> stream, Node subject, Node predicate, Node object) {
+        private ExtendedIterator<Triple> infFilter(ExtendedIterator<Triple> iter, Node subject, Node predicate, Node object) {
             // XXX Rewrite ??
-            stream = inf(stream) ;
+            iter = inf(iter) ;
             if ( isTerm(predicate) )
-                stream = stream.filter(triple -> { return triple.getPredicate().equals(predicate) ; } ) ;
+                iter = iter.filterKeep(triple -> triple.getPredicate().equals(predicate)) ;
             if ( isTerm(object) )
-                stream = stream.filter(triple -> { return triple.getObject().equals(object) ; } ) ;
+                iter = iter.filterKeep(triple -> triple.getObject().equals(object)) ;
             if ( isTerm(subject) )
-                stream = stream.filter(triple -> { return triple.getSubject().equals(subject) ; } ) ;
-            return stream ;
+                iter = iter.filterKeep(triple -> triple.getSubject().equals(subject)) ;
+            return iter ;
         }
         
-        private Stream<Triple> inf(Stream<Triple> stream) {
-            return stream.flatMap(triple -> {
-                List<Triple> x = new ArrayList<>() ;
-                engine.process(x, triple) ;
-                return x.stream() ;
-            } ) ;
+        private ExtendedIterator<Triple> inf(ExtendedIterator<Triple> iter) {
+            return new InfIterator(engine, iter) ;
         }
 
-        // XXX Rewrite ?? "Set" might mean this is best, as is materialization.
-        private void accInstances(Set<Triple> triples, Set<Node> types, Node requestedType) {
-            for ( Node type : types ) {
-                Stream<Triple> stream = sourceFind(Node.ANY, rdfType, type) ;
-                stream.forEach(triple -> triples.add(Triple.create(triple.getSubject(), rdfType, requestedType)) );
-            }
+        /** a then b. andThen does not close a when it is used up; this does. */
+        private static <T> ExtendedIterator<T> andThen(ExtendedIterator<T> a, ExtendedIterator<T> b) {
+            return new ExtendedIteratorAutoClose<>(a).andThen(b) ;
         }
 
-        private void accInstancesDomain(Set<Triple> triples, Set<Node> types, Node requestedType) {
-            for ( Node type : types ) {
-                Set<Node> predicates = setup.getPropertiesByDomain(type) ;
-                if ( predicates == null )
-                    continue ;
-                predicates.forEach(p -> {
-                    Stream<Triple> stream = sourceFind(Node.ANY, p, Node.ANY) ;
-                    stream.forEach(triple -> triples.add(Triple.create(triple.getSubject(), rdfType, requestedType)) );
-                }) ;
-            }
+        private <T> ExtendedIterator<T> distinct(ExtendedIterator<T> iter) {
+            Set<T> seen = new HashSet<>() ;
+            if ( stats != null )
+                stats.distinct(seen) ;
+            return iter.filterKeep(seen::add) ;
         }
 
-        private void accInstancesRange(Set<Triple> triples, Set<Node> types, Node requestedType) {
-            for ( Node type : types ) {
-                Set<Node> predicates = setup.getPropertiesByRange(type) ;
-                if ( predicates == null )
-                    continue ;
-                predicates.forEach(p -> {
-                    Stream<Triple> stream = sourceFind(Node.ANY, p, Node.ANY) ;
-                    stream.forEach(triple -> triples.add(Triple.create(triple.getObject(), rdfType, requestedType)) );
-                }) ;
-            }
+        /** Apply action to each item and close the iterator. */
+        private static <T> void forEach(ExtendedIterator<T> iter, Consumer<T> action) {
+            try {
+                iter.forEachRemaining(action) ;
+            } finally { iter.close() ; }
         }
 
         private void accTypes(Set<Node> types, Node subject) {
-            Stream<Triple> stream = sourceFind(subject, rdfType, Node.ANY) ;
-            stream.forEach(triple -> types.add(triple.getObject())) ;
+            forEach(sourceFind(subject, rdfType, Node.ANY), triple -> types.add(triple.getObject())) ;
         }
 
         private void accTypesDomain(Set<Node> types, Node node) {
-            Stream<Triple> stream = sourceFind(node, Node.ANY, Node.ANY) ;
-            stream.forEach(triple -> {
+            if ( ! setup.hasDomainDeclarations() )
+                return ;
+            Set<Node> domainProperties = setup.getDomainProperties() ;
+            if ( chooseAccessPath(node, Node.ANY, Node.ANY, domainProperties.size()) == AccessPath.PROBE ) {
+                for ( Node p : domainProperties ) {
+                    if ( graph.contains(node, p, Node.ANY) )
+                        types.addAll(setup.getDomain(p)) ;
+                }
+                return ;
+            }
+            forEach(sourceFind(node, Node.ANY, Node.ANY), triple -> {
                 Node p = triple.getPredicate() ;
                 Set<Node> x = setup.getDomain(p) ;
                 types.addAll(x) ;
@@ -331,8 +744,17 @@ public class GraphRDFS extends GraphWrapper {
         }
 
         private void accTypesRange(Set<Node> types, Node node) {
-           Stream<Triple> stream = sourceFind(Node.ANY, Node.ANY, node) ;
-            stream.forEach(triple -> {
+            if ( ! setup.hasRangeDeclarations() )
+                return ;
+            Set<Node> rangeProperties = setup.getRangeProperties() ;
+            if ( chooseAccessPath(Node.ANY, Node.ANY, node, rangeProperties.size()) == AccessPath.PROBE ) {
+                for ( Node p : rangeProperties ) {
+                    if ( graph.contains(Node.ANY, p, node) )
+                        types.addAll(setup.getRange(p)) ;
+                }
+                return ;
+            }
+            forEach(sourceFind(Node.ANY, Node.ANY, node), triple -> {
                 Node p = triple.getPredicate() ;
                 Set<Node> x = setup.getRange(p) ;
                 types.addAll(x) ;
@@ -376,6 +798,352 @@ public class GraphRDFS extends GraphWrapper {
         }
     }
     
+    /** Instances of a class, by scanning in turn: rdf:type of each subclass
+     * (including the class), then each property with a domain of one of these
+     * classes (subjects), then each property with a range (objects).
+     * <p>
+     * Scans are opened as needed. Results are distinct: a result is skipped
+     * if an earlier scan would have produced it, which is checked by probing the
+     * graph, not by remembering results. Only a domain or range scan, which can
+     * produce the same node several times, keeps a set of the nodes it has produced,
+     * and only while that scan is active. A single class with no domain or
+     * range declarations needs no checks.
+     */
+    static class InstancesIterator extends NiceIterator<Node> {
+        private final Graph graph ;
+        private final List<Node> types ;
+        private final Map<Node, Integer> typeIndex = new HashMap<>() ;
+        private final List<Node> domainPredicates ;
+        private final List<Node> rangePredicates ;
+        private final int domainStart ;
+        private final int rangeStart ;
+        private final int numScans ;
+
+        private int idx = -1 ;
+        private ExtendedIterator<Triple> scan = null ;
+        private Set<Node> seenInScan = null ;
+        private Node slot = null ;
+        private boolean finished = false ;
+        // May be null.
+        private final FindStats stats ;
+
+        InstancesIterator(Graph graph, Collection<Node> types, Collection<Node> domainPredicates, Collection<Node> rangePredicates) {
+            this(graph, types, domainPredicates, rangePredicates, null) ;
+        }
+
+        InstancesIterator(Graph graph, Collection<Node> types, Collection<Node> domainPredicates, Collection<Node> rangePredicates, FindStats stats) {
+            this.graph = graph ;
+            this.stats = stats ;
+            this.types = new ArrayList<>(types) ;
+            for ( int i = 0 ; i < this.types.size() ; i++ )
+                typeIndex.put(this.types.get(i), i) ;
+            this.domainPredicates = new ArrayList<>(domainPredicates) ;
+            this.rangePredicates = new ArrayList<>(rangePredicates) ;
+            this.domainStart = this.types.size() ;
+            this.rangeStart = domainStart + this.domainPredicates.size() ;
+            this.numScans = rangeStart + this.rangePredicates.size() ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true ;
+            if ( finished )
+                return false ;
+            for ( ;; ) {
+                if ( scan == null ) {
+                    idx++ ;
+                    if ( idx >= numScans ) {
+                        finished = true ;
+                        return false ;
+                    }
+                    scan = open(idx) ;
+                    seenInScan = ( idx >= domainStart ) ? new HashSet<>() : null ;
+                }
+                while ( scan.hasNext() ) {
+                    Triple triple = scan.next() ;
+                    Node x = ( idx < rangeStart ) ? triple.getSubject() : triple.getObject() ;
+                    if ( seenInScan != null && ! seenInScan.add(x) )
+                        continue ;
+                    if ( earlier(x) )
+                        continue ;
+                    slot = x ;
+                    return true ;
+                }
+                scan.close() ;
+                scan = null ;
+                if ( stats != null && seenInScan != null )
+                    stats.distinctSize(seenInScan.size()) ;
+                seenInScan = null ;
+            }
+        }
+
+        @Override
+        public Node next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            Node x = slot ;
+            slot = null ;
+            return x ;
+        }
+
+        @Override
+        public void close() {
+            if ( scan != null )
+                scan.close() ;
+            scan = null ;
+            seenInScan = null ;
+            slot = null ;
+            finished = true ;
+        }
+
+        private ExtendedIterator<Triple> open(int i) {
+            if ( i < domainStart )
+                return graph.find(Node.ANY, rdfType, types.get(i)) ;
+            if ( i < rangeStart )
+                return graph.find(Node.ANY, domainPredicates.get(i-domainStart), Node.ANY) ;
+            return graph.find(Node.ANY, rangePredicates.get(i-rangeStart), Node.ANY) ;
+        }
+
+        /** Would a scan before the current one have produced x? */
+        private boolean earlier(Node x) {
+            if ( idx == 0 )
+                return false ;
+            if ( ! x.isLiteral() ) {
+                // Earlier rdf:type scans - one probe for all of them.
+                int limit = Math.min(idx, domainStart) ;
+                ExtendedIterator<Triple> iter = graph.find(x, rdfType, Node.ANY) ;
+                try {
+                    while ( iter.hasNext() ) {
+                        Integer i = typeIndex.get(iter.next().getObject()) ;
+                        if ( i != null && i < limit )
+                            return true ;
+                    }
+                } finally { iter.close() ; }
+                int domainLimit = Math.min(idx, rangeStart) ;
+                for ( int i = domainStart ; i < domainLimit ; i++ ) {
+                    if ( graph.contains(x, domainPredicates.get(i-domainStart), Node.ANY) )
+                        return true ;
+                }
+            }
+            for ( int i = rangeStart ; i < idx ; i++ ) {
+                if ( graph.contains(Node.ANY, rangePredicates.get(i-rangeStart), x) )
+                    return true ;
+            }
+            return false ;
+        }
+    }
+
+    /** Counts for one metered find. Not thread safe: used by one iterator. */
+    static class FindStats {
+        private final MetricsRDFS metrics ;
+        private final MetricsRDFS.Branch branch ;
+        private final long start = System.nanoTime() ;
+        long sourceFinds = 0 ;
+        long scanned = 0 ;
+        long returned = 0 ;
+        private long distinctMax = 0 ;
+        private List<Set<?>> distinctSets = null ;
+        private boolean reported = false ;
+        // Analyze: source operations are recorded in this plan. Normally null.
+        ExplainRDFS explain = null ;
+
+        FindStats(MetricsRDFS metrics, MetricsRDFS.Branch branch) {
+            this.metrics = metrics ;
+            this.branch = branch ;
+        }
+
+        void distinct(Set<?> seen) {
+            if ( distinctSets == null )
+                distinctSets = new ArrayList<>(2) ;
+            distinctSets.add(seen) ;
+        }
+
+        void distinctSize(long size) {
+            distinctMax = Math.max(distinctMax, size) ;
+        }
+
+        /** Largest set used to remove duplicates. */
+        long distinctSize() {
+            if ( distinctSets != null ) {
+                for ( Set<?> seen : distinctSets )
+                    distinctSize(seen.size()) ;
+                distinctSets = null ;
+            }
+            return distinctMax ;
+        }
+
+        void report() {
+            if ( reported )
+                return ;
+            reported = true ;
+            if ( metrics != null )
+                metrics.find(branch, System.nanoTime()-start, sourceFinds, scanned, returned, distinctSize()) ;
+        }
+    }
+
+    /** Wrapper of the source graph for a metered find: counts finds, probes and triples read.
+     * For analyze, also records them, with times, in the plan.
+     */
+    static class CountingGraph extends GraphWrapper {
+        private final FindStats stats ;
+
+        CountingGraph(Graph graph, FindStats stats) {
+            super(graph) ;
+            this.stats = stats ;
+        }
+
+        @Override
+        public ExtendedIterator<Triple> find(Triple m) {
+            return find(m.getMatchSubject(), m.getMatchPredicate(), m.getMatchObject()) ;
+        }
+
+        @Override
+        public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+            stats.sourceFinds++ ;
+            if ( stats.explain == null )
+                return super.find(s, p, o).filterKeep(t -> { stats.scanned++ ; return true ; }) ;
+            ExplainRDFS.Step step = stats.explain.source(Op.SCAN, any(s), any(p), any(o)) ;
+            step.calls++ ;
+            long start = System.nanoTime() ;
+            ExtendedIterator<Triple> iter = super.find(s, p, o) ;
+            step.nanos += System.nanoTime()-start ;
+            return new AnalyzeIterator(iter, step, stats) ;
+        }
+
+        @Override
+        public boolean contains(Triple t) {
+            return contains(t.getMatchSubject(), t.getMatchPredicate(), t.getMatchObject()) ;
+        }
+
+        @Override
+        public boolean contains(Node s, Node p, Node o) {
+            stats.sourceFinds++ ;
+            if ( stats.explain == null )
+                return super.contains(s, p, o) ;
+            ExplainRDFS.Step step = stats.explain.source(Op.PROBE, any(s), any(p), any(o)) ;
+            step.calls++ ;
+            long start = System.nanoTime() ;
+            boolean b = super.contains(s, p, o) ;
+            step.nanos += System.nanoTime()-start ;
+            if ( b )
+                step.rows++ ;
+            return b ;
+        }
+    }
+
+    /** A scan of the source graph during analyze: times it and counts its triples. */
+    static class AnalyzeIterator extends NiceIterator<Triple> {
+        private final ExtendedIterator<Triple> iter ;
+        private final ExplainRDFS.Step step ;
+        private final FindStats stats ;
+
+        AnalyzeIterator(ExtendedIterator<Triple> iter, ExplainRDFS.Step step, FindStats stats) {
+            this.iter = iter ;
+            this.step = step ;
+            this.stats = stats ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime() ;
+            boolean b = iter.hasNext() ;
+            step.nanos += System.nanoTime()-start ;
+            return b ;
+        }
+
+        @Override
+        public Triple next() {
+            long start = System.nanoTime() ;
+            Triple t = iter.next() ;
+            step.nanos += System.nanoTime()-start ;
+            step.rows++ ;
+            stats.scanned++ ;
+            return t ;
+        }
+
+        @Override
+        public void close() {
+            iter.close() ;
+        }
+    }
+
+    /** Counts the results of a find and reports when the iterator ends or is closed. */
+    static class MeteredIterator extends NiceIterator<Triple> {
+        private final ExtendedIterator<Triple> iter ;
+        private final FindStats stats ;
+
+        MeteredIterator(ExtendedIterator<Triple> iter, FindStats stats) {
+            this.iter = iter ;
+            this.stats = stats ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( iter.hasNext() )
+                return true ;
+            stats.report() ;
+            return false ;
+        }
+
+        @Override
+        public Triple next() {
+            Triple t = iter.next() ;
+            stats.returned++ ;
+            return t ;
+        }
+
+        @Override
+        public void close() {
+            iter.close() ;
+            stats.report() ;
+        }
+    }
+
+    /** Each triple of the input followed by the triples derived from it.
+     * One buffer per iterator, reused for each input triple.
+     */
+    static class InfIterator extends NiceIterator<Triple> {
+        private final InferenceEngineRDFS engine ;
+        private final ExtendedIterator<Triple> input ;
+        private final List<Triple> buffer = new ArrayList<>() ;
+        private final BaseInfEngineRDFS.Output<Node> output = (s, p, o) -> buffer.add(Triple.create(s, p, o)) ;
+        private int idx = 0 ;
+
+        InfIterator(InferenceEngineRDFS engine, ExtendedIterator<Triple> input) {
+            this.engine = engine ;
+            this.input = input ;
+        }
+
+        @Override
+        public void close() {
+            buffer.clear() ;
+            idx = 0 ;
+            input.close() ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( idx >= buffer.size() ) {
+                if ( ! input.hasNext() )
+                    return false ;
+                buffer.clear() ;
+                idx = 0 ;
+                Triple triple = input.next() ;
+                buffer.add(triple) ;
+                engine.process(triple.getSubject(), triple.getPredicate(), triple.getObject(), output) ;
+            }
+            return true ;
+        }
+
+        @Override
+        public Triple next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            return buffer.get(idx++) ;
+        }
+    }
+
     static public Iterator<Triple> print(Iterator<Triple> iter) {
         List<Triple> triples = new ArrayList<>() ; 
         for ( ; iter.hasNext() ;)
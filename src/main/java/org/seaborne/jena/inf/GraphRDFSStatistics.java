@@ -0,0 +1,170 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import java.util.HashSet ;
+import java.util.Set ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.GraphStatisticsHandler ;
+import org.apache.jena.graph.Node ;
+
+/** Statistics for a {@link GraphRDFS}: estimates of the number of matches of a
+ * pattern including inferred triples, so that BGP reordering sees the cost of
+ * expanding it.
+ * <p>
+ * Estimates are sums of the base graph's counts over the patterns the inference
+ * uses: the subproperties of a predicate; for rdf:type, the asserted types of
+ * each subclass plus the properties with a domain/range of one of those classes.
+ * Sums count some triples more than once so, for a given class or property,
+ * they are upper bounds. For {@code (? rdf:type ?)}, asserted types are counted
+ * once, not once per superclass.
+ * Where the base graph can't estimate a pattern, the smallest estimate
+ * of a pattern with only one of its terms is used. Returns -1 if there is no estimate.
+ */
+public class GraphRDFSStatistics implements GraphStatisticsHandler {
+    private final InferenceSetupRDFS setup ;
+    private final Graph base ;
+
+    public GraphRDFSStatistics(InferenceSetupRDFS setup, Graph base) {
+        this.setup = setup ;
+        this.base = base ;
+    }
+
+    @Override
+    public long getStatistic(Node s, Node p, Node o) {
+        s = any(s) ;
+        p = any(p) ;
+        o = any(o) ;
+        if ( base.getStatisticsHandler() == null )
+            return -1 ;
+        if ( setup.includeDerivedDataRDFS() )
+            // Vocabulary triples as well; no estimate.
+            return -1 ;
+        if ( rdfType.equals(p) )
+            return typeStatistic(s, o) ;
+        if ( Node.ANY.equals(p) ) {
+            // All asserted triples, the subproperty triples (not estimated) and the types.
+            long x = count(s, Node.ANY, o) ;
+            long y = typeStatistic(s, o) ;
+            return ( x < 0 || y < 0 ) ? -1 : x + y ;
+        }
+        long total = 0 ;
+        for ( Node p2 : inc(setup.getSubProperties(p), p) ) {
+            long x = count(s, p2, o) ;
+            if ( x < 0 )
+                return -1 ;
+            total += x ;
+        }
+        return total ;
+    }
+
+    private long typeStatistic(Node s, Node o) {
+        if ( Node.ANY.equals(o) ) {
+            long total = count(s, rdfType, Node.ANY) ;
+            if ( total < 0 )
+                return -1 ;
+            // Each triple with a domain/range predicate gives the declared classes and their superclasses.
+            if ( setup.hasDomainDeclarations() ) {
+                for ( Node q : setup.getDomainProperties() ) {
+                    long x = count(s, q, Node.ANY) ;
+                    if ( x < 0 )
+                        return -1 ;
+                    total += x * numTypes(setup.getDomain(q)) ;
+                }
+            }
+            if ( setup.hasRangeDeclarations() ) {
+                for ( Node q : setup.getRangeProperties() ) {
+                    long x = count(Node.ANY, q, s) ;
+                    if ( x < 0 )
+                        return -1 ;
+                    total += x * numTypes(setup.getRange(q)) ;
+                }
+            }
+            return total ;
+        }
+        long total = 0 ;
+        for ( Node t : inc(setup.getSubClasses(o), o) ) {
+            long x = count(s, rdfType, t) ;
+            if ( x < 0 )
+                return -1 ;
+            total += x ;
+            for ( Node q : setup.getPropertiesByDomain(t) ) {
+                long y = count(s, q, Node.ANY) ;
+                if ( y < 0 )
+                    return -1 ;
+                total += y ;
+            }
+            for ( Node q : setup.getPropertiesByRange(t) ) {
+                long y = count(Node.ANY, q, s) ;
+                if ( y < 0 )
+                    return -1 ;
+                total += y ;
+            }
+        }
+        // (X type T) is 0 or 1.
+        if ( ! Node.ANY.equals(s) )
+            return Math.min(total, 1) ;
+        return total ;
+    }
+
+    // Number of classes including superclasses.
+    private long numTypes(Set<Node> classes) {
+        long n = 0 ;
+        for ( Node c : classes )
+            n += 1 + setup.getSuperClasses(c).size() ;
+        return n ;
+    }
+
+    /** Base graph count, or an upper bound from a less specific pattern, or -1. */
+    private long count(Node s, Node p, Node o) {
+        GraphStatisticsHandler stats = base.getStatisticsHandler() ;
+        long x = stats.getStatistic(s, p, o) ;
+        if ( x >= 0 )
+            return x ;
+        long best = -1 ;
+        if ( ! Node.ANY.equals(s) )
+            best = min(best, stats.getStatistic(s, Node.ANY, Node.ANY)) ;
+        if ( ! Node.ANY.equals(p) )
+            best = min(best, stats.getStatistic(Node.ANY, p, Node.ANY)) ;
+        if ( ! Node.ANY.equals(o) )
+            best = min(best, stats.getStatistic(Node.ANY, Node.ANY, o)) ;
+        return best ;
+    }
+
+    // Minimum of estimates, ignoring unknowns (-1).
+    private static long min(long x, long y) {
+        if ( x < 0 )
+            return y ;
+        if ( y < 0 )
+            return x ;
+        return Math.min(x, y) ;
+    }
+
+    private static Set<Node> inc(Set<Node> nodes, Node node) {
+        Set<Node> x = new HashSet<>(nodes) ;
+        x.add(node) ;
+        return x ;
+    }
+
+    private static Node any(Node node) {
+        return ( node == null ) ? Node.ANY : node ;
+    }
+}
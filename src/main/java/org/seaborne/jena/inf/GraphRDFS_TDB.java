@@ -0,0 +1,479 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import java.util.* ;
+import java.util.concurrent.CompletableFuture ;
+import java.util.concurrent.ConcurrentHashMap ;
+import java.util.function.Consumer ;
+
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.graph.GraphWrapper ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.util.iterator.NiceIterator ;
+import org.apache.jena.util.iterator.NullIterator ;
+import org.apache.jena.util.iterator.SingletonIterator ;
+import org.apache.jena.util.iterator.WrappedIterator ;
+
+/** RDFS over the default graph of a TDB dataset, working in NodeId space.
+ * <p>
+ * The find pattern is converted to NodeIds on entry, scans and inference work on
+ * tuples of NodeIds, and Nodes are only decoded for the results.
+ * As for {@link GraphRDFS}, results are produced as the scans proceed.
+ * <p>
+ * Each call works on the storage of the caller's transaction, if any;
+ * as for any TDB iterator, the results must be used inside that transaction.
+ * <p>
+ * When a vocabulary term that had a virtual NodeId is added to the data, the
+ * setup is rebuilt in the background. Until it is ready, finds use the old setup
+ * and may miss inferences involving that term.
+ */
+public class GraphRDFS_TDB extends GraphWrapper {
+    private static Logger log = LoggerFactory.getLogger(GraphRDFS_TDB.class) ;
+
+    // The engine, and its setup, for all finds. Reentrant.
+    private volatile InferenceEngineRDFS_TDB engine ;
+    // Background rebuild of the setup, if one has been started.
+    private CompletableFuture<Void> refresh = null ;
+
+    public GraphRDFS_TDB(InferenceSetupRDFS_TDB setup) {
+        super(setup.getDataset().getDefaultGraph()) ;
+        this.engine = new InferenceEngineRDFS_TDB(setup) ;
+    }
+
+    @Override
+    public ExtendedIterator<Triple> find(Triple m) {
+        return find(m.getMatchSubject(), m.getMatchPredicate(), m.getMatchObject()) ;
+    }
+
+    @Override
+    public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+        // The dataset is the same for all setups.
+        NodeTupleTable tuples = engine.setup.getDatasetGraphTDB().getTripleTable().getNodeTupleTable() ;
+        NodeTable nodeTable = tuples.getNodeTable() ;
+        InferenceEngineRDFS_TDB currentEngine = currentEngine(nodeTable) ;
+        InferenceSetupRDFS_TDB current = currentEngine.setup ;
+        NodeId sId = lookup(current, nodeTable, s) ;
+        NodeId pId = lookup(current, nodeTable, p) ;
+        NodeId oId = lookup(current, nodeTable, o) ;
+        // A term not in the node table can't be in the data or the vocabulary.
+        if ( sId == null || pId == null || oId == null )
+            return NullIterator.instance() ;
+        Find3_TDB fTDB = new Find3_TDB(currentEngine, tuples) ;
+        return fTDB.find(sId, pId, oId).mapWith(t->toTriple(current, nodeTable, t)) ;
+    }
+
+    @Override
+    public boolean contains(Triple t) {
+        return contains(t.getMatchSubject(), t.getMatchPredicate(), t.getMatchObject()) ;
+    }
+
+    @Override
+    public boolean contains(Node s, Node p, Node o) {
+        ExtendedIterator<Triple> iter = find(s, p, o) ;
+        try {
+            return iter.hasNext() ;
+        } finally { iter.close() ; }
+    }
+
+    /** The engine to use. If a term with a virtual NodeId has been added to the data,
+     * start a rebuild and carry on with the current engine.
+     */
+    private InferenceEngineRDFS_TDB currentEngine(NodeTable nodeTable) {
+        InferenceEngineRDFS_TDB x = engine ;
+        if ( ! x.setup.isCurrent(nodeTable) )
+            startRefresh(x) ;
+        return x ;
+    }
+
+    private synchronized void startRefresh(InferenceEngineRDFS_TDB stale) {
+        if ( engine != stale || ( refresh != null && ! refresh.isDone() ) )
+            return ;
+        refresh = CompletableFuture.runAsync(() -> {
+            InferenceEngineRDFS_TDB x = new InferenceEngineRDFS_TDB(stale.setup.refresh()) ;
+            engine = x ;
+        }).whenComplete((r, ex) -> {
+            if ( ex != null )
+                log.warn("Failed to rebuild the RDFS setup", ex) ;
+        }) ;
+    }
+
+    /** Wait for any rebuild of the setup to finish. */
+    void awaitRefresh() {
+        CompletableFuture<Void> x ;
+        synchronized(this) {
+            x = refresh ;
+        }
+        if ( x != null )
+            x.join() ;
+    }
+
+    private static NodeId lookup(InferenceSetupRDFS_TDB setup, NodeTable nodeTable, Node node) {
+        if ( node == null || Node.ANY.equals(node) )
+            return NodeId.NodeIdAny ;
+        NodeId id = nodeTable.getNodeIdForNode(node) ;
+        if ( NodeId.isDoesNotExist(id) )
+            // Vocabulary terms not in the data have a virtual NodeId.
+            return setup.getVirtualNodeId(node) ;
+        return id ;
+    }
+
+    private static Triple toTriple(InferenceSetupRDFS_TDB setup, NodeTable nodeTable, Tuple<NodeId> tuple) {
+        Node s = setup.toNode(tuple.get(0), nodeTable) ;
+        Node p = setup.toNode(tuple.get(1), nodeTable) ;
+        Node o = setup.toNode(tuple.get(2), nodeTable) ;
+        return Triple.create(s, p, o) ;
+    }
+
+    /** The RDFS engine in NodeId space, one per setup.
+     * Use {@link #process(Object, Object, Object, Output)} with an output for each call.
+     */
+    static class InferenceEngineRDFS_TDB extends BaseInfEngineRDFS<NodeId> {
+        final InferenceSetupRDFS_TDB setup ;
+        // Whether a non-inline NodeId is a literal: decoded once, then remembered.
+        // Bounded; cleared when full.
+        static final int MaxLiteralCache = 100_000 ;
+        private final Map<NodeId, Boolean> literals = new ConcurrentHashMap<>() ;
+        // Only NodeIds allocated before the engine was made are remembered: those are
+        // committed. A later one could be from a transaction that aborts, and be reused.
+        private final long committedLimit ;
+
+        InferenceEngineRDFS_TDB(InferenceSetupRDFS_TDB setup) {
+            super(setup, setup.fromNode(InfGlobal.rdfType), setup.fromNode(InfGlobal.rdfsSubClassOf),
+                  setup.fromNode(InfGlobal.rdfsSubPropertyOf), setup.fromNode(InfGlobal.rdfsDomain),
+                  setup.fromNode(InfGlobal.rdfsRange)) ;
+            this.setup = setup ;
+            this.committedLimit = setup.committedAllocOffset() ;
+        }
+
+        @Override
+        protected void derive(NodeId s, NodeId p, NodeId o) {
+            throw new IllegalStateException("No destination: use process(s, p, o, output)") ;
+        }
+
+        /** Only called for the object of a predicate with an rdfs:range. */
+        @Override
+        protected boolean isLiteral(NodeId id) {
+            // Only literals are inlined.
+            if ( NodeId.isInline(id) )
+                return true ;
+            Boolean b = literals.get(id) ;
+            if ( b != null )
+                return b ;
+            // The node table of the caller's transaction.
+            b = setup.toNode(id, setup.getNodeTable()).isLiteral() ;
+            if ( id.getId() < committedLimit ) {
+                if ( literals.size() >= MaxLiteralCache )
+                    literals.clear() ;
+                literals.put(id, b) ;
+            }
+            return b ;
+        }
+    }
+
+    /** Find3_Graph in NodeId space over the triple table of a TDB dataset.
+     * As for Find3_Graph, results are produced as the scans proceed, so closing
+     * the iterator early (e.g. LIMIT) stops the work.
+     */
+    static class Find3_TDB {
+        private final NodeTupleTable tuples ;
+        private final InferenceSetupRDFS_TDB setup ;
+        private final InferenceEngineRDFS_TDB engine ;
+        private final NodeId ANY = NodeId.NodeIdAny ;
+        private final NodeId rdfType ;
+        private final NodeId rdfsSubClassOf ;
+        private final NodeId rdfsSubPropertyOf ;
+        private final NodeId rdfsDomain ;
+        private final NodeId rdfsRange ;
+
+        Find3_TDB(InferenceEngineRDFS_TDB engine, NodeTupleTable tuples) {
+            this.setup = engine.setup ;
+            this.engine = engine ;
+            this.tuples = tuples ;
+            this.rdfType = engine.rdfType ;
+            this.rdfsSubClassOf = engine.rdfsSubClassOf ;
+            this.rdfsSubPropertyOf = engine.rdfsSubPropertyOf ;
+            this.rdfsDomain = engine.rdfsDomain ;
+            this.rdfsRange = engine.rdfsRange ;
+        }
+
+        public ExtendedIterator<Tuple<NodeId>> find(NodeId s, NodeId p, NodeId o) {
+            return find2(s, p, o) ;
+        }
+
+        protected ExtendedIterator<Tuple<NodeId>> sourceFind(NodeId s, NodeId p, NodeId o) {
+            return WrappedIterator.create(tuples.find(s, p, o)) ;
+        }
+
+        private boolean sourceContains(NodeId s, NodeId p, NodeId o) {
+            Iterator<Tuple<NodeId>> iter = tuples.find(s, p, o) ;
+            try {
+                return iter.hasNext() ;
+            } finally { Iter.close(iter) ; }
+        }
+
+        private static Tuple<NodeId> tuple(NodeId s, NodeId p, NodeId o) {
+            return TupleFactory.create3(s, p, o) ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find2(NodeId subject, NodeId predicate, NodeId object) {
+            if ( rdfType.equals(predicate) ) {
+                if ( isTerm(subject) ) {
+                    if ( isTerm(object) )
+                        return find_X_type_T(subject, object) ;
+                    else
+                        return find_X_type_ANY(subject) ;
+                } else {
+                    if ( isTerm(object) )
+                        return find_ANY_type_T(object) ;
+                    else
+                        return find_ANY_type_ANY() ;
+                }
+            }
+
+            if ( isANY(predicate) ) {
+                if ( isTerm(subject) ) {
+                    if ( isTerm(object) )
+                        return find_X_ANY_T(subject, object) ;
+                    else
+                        return find_X_ANY_ANY(subject) ;
+                } else {
+                    if ( isTerm(object) )
+                        return find_ANY_ANY_T(object) ;
+                    else
+                        return find_ANY_ANY_ANY() ;
+                }
+            }
+
+            return find_subproperty(subject, predicate, object) ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_subproperty(NodeId subject, NodeId predicate, NodeId object) {
+            Set<NodeId> predicates = setup.getSubProperties(predicate) ;
+            if ( predicates == null || predicates.isEmpty() )
+                return sourceFind(subject, predicate, object) ;
+            ExtendedIterator<Tuple<NodeId>> iter = sourceFind(subject, predicate, object) ;
+            for ( NodeId p : predicates ) {
+                ExtendedIterator<Tuple<NodeId>> iter2 = sourceFind(subject, p, object) ;
+                iter = andThen(iter, iter2.mapWith(tuple -> tuple(tuple.get(0), predicate, tuple.get(2)))) ;
+            }
+            return iter ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_X_type_T(NodeId subject, NodeId object) {
+            if ( sourceContains(subject, rdfType, object) )
+                return new SingletonIterator<>(tuple(subject, rdfType, object)) ;
+            Set<NodeId> types = new HashSet<>() ;
+            accTypesRange(types, subject) ;
+            if ( types.contains(object) )
+                return new SingletonIterator<>(tuple(subject, rdfType, object)) ;
+            accTypesDomain(types, subject) ;
+            if ( types.contains(object) )
+                return new SingletonIterator<>(tuple(subject, rdfType, object)) ;
+            accTypes(types, subject) ;
+            types = superTypes(types) ;
+            if ( types.contains(object) )
+                return new SingletonIterator<>(tuple(subject, rdfType, object)) ;
+            return NullIterator.instance() ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_X_type_ANY(NodeId subject) {
+            Set<NodeId> types = new HashSet<>() ;
+            accTypesRange(types, subject) ;
+            accTypesDomain(types, subject) ;
+            accTypes(types, subject) ;
+            types = superTypes(types) ;
+            return WrappedIterator.create(types.iterator()).mapWith(type -> tuple(subject, rdfType, type)) ;
+        }
+
+        /** Instances, found as the scans proceed: the rdf:type scans, then the
+         * domain and range scans. Duplicates are removed with one set of the instances returned.
+         */
+        private ExtendedIterator<Tuple<NodeId>> find_ANY_type_T(NodeId type) {
+            Set<NodeId> types = setup.getSubClassesInc(type) ;
+            if ( types.isEmpty() )
+                types = Collections.singleton(type) ;
+            Set<NodeId> domainPredicates = new LinkedHashSet<>() ;
+            Set<NodeId> rangePredicates = new LinkedHashSet<>() ;
+            for ( NodeId t : types ) {
+                domainPredicates.addAll(setup.getPropertiesByDomain(t)) ;
+                rangePredicates.addAll(setup.getPropertiesByRange(t)) ;
+            }
+            ExtendedIterator<NodeId> iter = NullIterator.instance() ;
+            for ( NodeId t : types )
+                iter = andThen(iter, sourceFind(ANY, rdfType, t).mapWith(tuple -> tuple.get(0))) ;
+            for ( NodeId p : domainPredicates )
+                iter = andThen(iter, sourceFind(ANY, p, ANY).mapWith(tuple -> tuple.get(0))) ;
+            for ( NodeId p : rangePredicates )
+                // Literals are not given a type by rdfs:range.
+                iter = andThen(iter, sourceFind(ANY, p, ANY).mapWith(tuple -> tuple.get(2)).filterDrop(engine::isLiteral)) ;
+            return distinct(iter).mapWith(x -> tuple(x, rdfType, type)) ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_ANY_type_ANY() {
+            ExtendedIterator<Tuple<NodeId>> iter = sourceFind(ANY, ANY, ANY) ;
+            return infFilter(iter, ANY, rdfType, ANY) ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_X_ANY_T(NodeId subject, NodeId object) {
+            ExtendedIterator<Tuple<NodeId>> iter = sourceFind(subject, ANY, ANY) ;
+            if ( setup.hasRangeDeclarations() )
+                iter = andThen(iter, sourceFind(ANY, ANY, subject)) ;
+            return infFilter(iter, subject, ANY, object) ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_X_ANY_ANY(NodeId subject) {
+            return find_X_ANY_T(subject, ANY) ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_ANY_ANY_T(NodeId object) {
+            ExtendedIterator<Tuple<NodeId>> iter = sourceFind(ANY, ANY, object) ;
+            iter = iter.filterDrop(tuple -> tuple.get(1).equals(rdfType)) ;
+            iter = andThen(iter, find_ANY_type_T(object)) ;
+            if ( setup.includeDerivedDataRDFS() ) {
+                iter = andThen(iter, sourceFind(ANY, rdfsRange, object)) ;
+                iter = andThen(iter, sourceFind(ANY, rdfsDomain, object)) ;
+                iter = andThen(iter, sourceFind(object, rdfsSubClassOf, ANY)) ;
+                iter = andThen(iter, sourceFind(ANY, rdfsSubClassOf, object)) ;
+            }
+            return distinct(infFilter(iter, ANY, ANY, object)) ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> find_ANY_ANY_ANY() {
+            ExtendedIterator<Tuple<NodeId>> iter = sourceFind(ANY, ANY, ANY) ;
+            iter = inf(iter) ;
+            if ( setup.includeDerivedDataRDFS() )
+                iter = distinct(iter) ;
+            return iter ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> infFilter(ExtendedIterator<Tuple<NodeId>> iter, NodeId subject, NodeId predicate, NodeId object) {
+            iter = inf(iter) ;
+            if ( isTerm(predicate) )
+                iter = iter.filterKeep(tuple -> tuple.get(1).equals(predicate)) ;
+            if ( isTerm(object) )
+                iter = iter.filterKeep(tuple -> tuple.get(2).equals(object)) ;
+            if ( isTerm(subject) )
+                iter = iter.filterKeep(tuple -> tuple.get(0).equals(subject)) ;
+            return iter ;
+        }
+
+        private ExtendedIterator<Tuple<NodeId>> inf(ExtendedIterator<Tuple<NodeId>> iter) {
+            return new InfIterator(engine, iter) ;
+        }
+
+        private static <T> ExtendedIterator<T> distinct(ExtendedIterator<T> iter) {
+            Set<T> seen = new HashSet<>() ;
+            return iter.filterKeep(seen::add) ;
+        }
+
+        /** a then b, closing a when it is used up. */
+        private static <T> ExtendedIterator<T> andThen(ExtendedIterator<T> a, ExtendedIterator<T> b) {
+            return new ExtendedIteratorAutoClose<>(a).andThen(b) ;
+        }
+
+        /** Apply action to each item and close the iterator. */
+        private void forEach(NodeId s, NodeId p, NodeId o, Consumer<Tuple<NodeId>> action) {
+            Iterator<Tuple<NodeId>> iter = tuples.find(s, p, o) ;
+            try {
+                iter.forEachRemaining(action) ;
+            } finally { Iter.close(iter) ; }
+        }
+
+        private void accTypes(Set<NodeId> types, NodeId subject) {
+            forEach(subject, rdfType, ANY, tuple -> types.add(tuple.get(2))) ;
+        }
+
+        private void accTypesDomain(Set<NodeId> types, NodeId node) {
+            forEach(node, ANY, ANY, tuple -> types.addAll(setup.getDomain(tuple.get(1)))) ;
+        }
+
+        private void accTypesRange(Set<NodeId> types, NodeId node) {
+            forEach(ANY, ANY, node, tuple -> types.addAll(setup.getRange(tuple.get(1)))) ;
+        }
+
+        private Set<NodeId> superTypes(Set<NodeId> types) {
+            Set<NodeId> x = new HashSet<>() ;
+            for ( NodeId type : types ) {
+                x.addAll(setup.getSuperClasses(type)) ;
+                x.add(type) ;
+            }
+            return x ;
+        }
+
+        private static boolean isANY(NodeId id) {
+            return NodeId.isAny(id) ;
+        }
+
+        private static boolean isTerm(NodeId id) {
+            return ! NodeId.isAny(id) ;
+        }
+    }
+
+    /** Each input tuple followed by the tuples derived from it, as GraphRDFS.InfIterator. */
+    static class InfIterator extends NiceIterator<Tuple<NodeId>> {
+        private final InferenceEngineRDFS_TDB engine ;
+        private final ExtendedIterator<Tuple<NodeId>> input ;
+        private final List<Tuple<NodeId>> buffer = new ArrayList<>() ;
+        private final BaseInfEngineRDFS.Output<NodeId> output = (s, p, o) -> buffer.add(TupleFactory.create3(s, p, o)) ;
+        private int idx = 0 ;
+
+        InfIterator(InferenceEngineRDFS_TDB engine, ExtendedIterator<Tuple<NodeId>> input) {
+            this.engine = engine ;
+            this.input = input ;
+        }
+
+        @Override
+        public void close() {
+            buffer.clear() ;
+            idx = 0 ;
+            input.close() ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( idx >= buffer.size() ) {
+                if ( ! input.hasNext() )
+                    return false ;
+                buffer.clear() ;
+                idx = 0 ;
+                Tuple<NodeId> tuple = input.next() ;
+                buffer.add(tuple) ;
+                engine.process(tuple.get(0), tuple.get(1), tuple.get(2), output) ;
+            }
+            return true ;
+        }
+
+        @Override
+        public Tuple<NodeId> next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            return buffer.get(idx++) ;
+        }
+    }
+}
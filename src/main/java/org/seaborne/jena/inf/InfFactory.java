@@ -20,7 +20,9 @@ package org.seaborne.jena.inf ;
 import org.apache.jena.riot.system.StreamRDF ;
 
 import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
 import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.sparql.core.DatasetGraph ;
 
 public class InfFactory {
     
@@ -32,13 +34,81 @@ public class InfFactory {
         return new GraphRDFS(setup, data) ;
     }
 
+    /** RDFS graph with a cache of the inferred types of up to {@code typeCacheSize} subjects.
+     * @see TypeCacheRDFS
+     */
+    public static Graph graphRDF(Graph data, InferenceSetupRDFS setup, int typeCacheSize) {
+        return new GraphRDFS(setup, data, typeCacheSize) ;
+    }
+
+    /** RDFS graph with all rdf:type triples kept in an index, other triples inferred on demand.
+     * @see TypeIndexRDFS
+     */
+    public static Graph graphRDFHybrid(Graph data, InferenceSetupRDFS setup) {
+        return GraphRDFS.createHybrid(setup, data) ;
+    }
+
+    /** A dataset with RDFS applied, by backward inference, to each of its graphs.
+     * @see DatasetGraphRDFS
+     */
+    public static DatasetGraph datasetRDFS(DatasetGraph dsg, InferenceSetupRDFS setup) {
+        return new DatasetGraphRDFS(dsg, setup) ;
+    }
+
+    /** RDFS over the default graph of a TDB dataset, working in NodeId space.
+     * The dataset may be transactional.
+     * @see GraphRDFS_TDB
+     */
+    public static Graph graphRDFS_TDB(DatasetGraph dsg, Graph vocab) {
+        return new GraphRDFS_TDB(new InferenceSetupRDFS_TDB(vocab, dsg)) ;
+    }
+
+    /** Set SPARQL queries on this dataset to apply RDFS by rewriting the query.
+     * @see QueryEngineRDFS
+     */
+    public static void queryRewriteRDFS(DatasetGraph dsg, InferenceSetupRDFS setup) {
+        QueryEngineRDFS.enable(dsg, setup) ;
+    }
+
+    /** Write the data and all RDFS derived triples into dest, using all processors.
+     * Returns the number of triples emitted, an upper bound on the number added:
+     * duplicates are removed within a batch, not across batches.
+     * @see InferenceMaterializeRDFS
+     */ 
+    public static long materialize(Graph data, InferenceSetupRDFS setup, Graph dest) {
+        return new InferenceMaterializeRDFS(setup).materialize(data, dest) ;
+    }
+
+    /** Write the data and all RDFS derived triples into graph graphName of dest, using all processors.
+     * Returns the number of quads emitted, an upper bound on the number added:
+     * duplicates are removed within a batch, not across batches.
+     * @see InferenceMaterializeRDFS
+     */ 
+    public static long materialize(Graph data, InferenceSetupRDFS setup, DatasetGraph dest, Node graphName) {
+        return new InferenceMaterializeRDFS(setup).materialize(data, dest, graphName) ;
+    }
+
     public static StreamRDF inf(StreamRDF data, Model vocab) {
         InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
         return inf(data, setup) ;
     }
 
     public static StreamRDF inf(StreamRDF data, InferenceSetupRDFS setup) {
-        InferenceProcessorRDFS inf = new InferenceProcessorRDFS(setup) ;
-        return null ; // inf.process(null)
+        return new InferenceProcessorStreamRDF(data, setup) ;
+    }
+
+    /** RDFS on a stream, with repeated output within a window of the last {@code window}
+     * distinct triples/quads removed.
+     * @see StreamRDFDistinct
+     */
+    public static StreamRDF infDistinct(StreamRDF data, InferenceSetupRDFS setup, int window) {
+        return new InferenceProcessorStreamRDF(StreamRDFDistinct.window(data, window), setup) ;
+    }
+
+    /** RDFS on a stream, with the inference done by a number of worker threads.
+     * @see InferenceProcessorStreamRDFPipeline
+     */
+    public static StreamRDF inf(StreamRDF data, InferenceSetupRDFS setup, int workers, boolean preserveOrder) {
+        return new InferenceProcessorStreamRDFPipeline(data, setup, workers, preserveOrder) ;
     }
 }
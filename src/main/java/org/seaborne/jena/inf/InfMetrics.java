@@ -0,0 +1,75 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.lang.management.ManagementFactory ;
+
+import javax.management.MBeanServer ;
+import javax.management.ObjectName ;
+
+import org.apache.jena.shared.JenaException ;
+
+/** The metrics receiver for RDFS inference, if any.
+ * <p>
+ * Code on the hot paths reads {@link #get} once per operation and does nothing
+ * more when it is null. 
+ */
+public class InfMetrics {
+    public static final String JmxName = "org.seaborne.jena.inf:type=MetricsRDFS" ;
+
+    private static volatile MetricsRDFS metrics = null ;
+
+    /** The current metrics receiver, or null if metrics are disabled. */
+    public static MetricsRDFS get() {
+        return metrics ;
+    }
+
+    /** Set the metrics receiver. Null disables metrics. */
+    public static void set(MetricsRDFS receiver) {
+        metrics = receiver ;
+    }
+
+    /** Collect metrics with a {@link MetricsCollectorRDFS}, available through JMX as {@value #JmxName}. */
+    public static synchronized MetricsCollectorRDFS enable() {
+        MetricsCollectorRDFS collector = new MetricsCollectorRDFS() ;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer() ;
+            ObjectName name = new ObjectName(JmxName) ;
+            if ( server.isRegistered(name) )
+                server.unregisterMBean(name) ;
+            server.registerMBean(collector, name) ;
+        } catch (Exception ex) {
+            throw new JenaException("Failed to register metrics with JMX", ex) ;
+        }
+        set(collector) ;
+        return collector ;
+    }
+
+    /** Stop collecting metrics and remove any JMX registration. */
+    public static synchronized void disable() {
+        set(null) ;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer() ;
+            ObjectName name = new ObjectName(JmxName) ;
+            if ( server.isRegistered(name) )
+                server.unregisterMBean(name) ;
+        } catch (Exception ex) {
+            throw new JenaException("Failed to unregister metrics from JMX", ex) ;
+        }
+    }
+}
@@ -17,8 +17,6 @@
 
 package org.seaborne.jena.inf ;
 
-import java.util.Set ;
-
 import org.apache.jena.graph.Node ;
 import org.apache.jena.vocabulary.RDF ;
 import org.apache.jena.vocabulary.RDFS ;
@@ -37,7 +35,7 @@ import org.apache.jena.vocabulary.RDFS ;
  * Usage: call process(Node, Node, Node), outputs to derive(Node, Node, Node).
  */
 
-public class InferenceEngineRDFS {
+public class InferenceEngineRDFS extends BaseInfEngineRDFS<Node> {
     // Todo:
     // rdfs:member
     // list:member ???
@@ -48,106 +46,32 @@ public class InferenceEngineRDFS {
     static final Node rdfsDomain        = RDFS.domain.asNode() ;
     static final Node rdfsRange         = RDFS.range.asNode() ;
 
-    private final InferenceSetupRDFS setup ;
     private final SinkTriple dest ;
 
-    public InferenceEngineRDFS(InferenceSetupRDFS state, SinkTriple dest) {
-        this.setup = state ;
-        this.dest = dest ;
-    }
+    private static final SinkTriple noDest = (s, p, o) -> {
+        throw new IllegalStateException("No destination: use process(s, p, o, output)") ;
+    } ;
 
-    public void process(Node s, Node p, Node o) {
-        subClass(s, p, o) ;
-        subProperty(s, p, o) ;
+    /** Engine for use with {@link #process(Object, Object, Object, Output)} only. */
+    public InferenceEngineRDFS(InferenceSetupRDFS state) {
+        this(state, noDest) ;
+    }
 
-        // domain() and range() also go through subClass processing.
-        domain(s, p, o) ;
-        range(s, p, o) ;
+    public InferenceEngineRDFS(InferenceSetupRDFS state, SinkTriple dest) {
+        super(state, rdfType, rdfsSubClassOf, rdfsSubPropertyOf, rdfsDomain, rdfsRange) ;
+        this.dest = dest ;
     }
 
     /** Any triple derived is sent to this method - does not include the trigger triple
      * (but that might be derived as well as being concrete). 
      */
+    @Override
     protected void derive(Node s, Node p, Node o) {
         dest.receive(s, p, o) ;
     }
 
-    // Rule extracts from Jena's RDFS rules etc/rdfs.rules
-
-    /*
-     * [rdfs8: (?a rdfs:subClassOf ?b), (?b rdfs:subClassOf ?c) -> (?a rdfs:subClassOf ?c)]
-     * [rdfs9: (?x rdfs:subClassOf ?y), (?a rdf:type ?x) -> (?a rdf:type ?y)]
-     */
-    final private void subClass(Node s, Node p, Node o) {
-        if ( p.equals(rdfType) ) {
-            Set<Node> x = setup.getSuperClasses(o) ;
-            x.forEach(c -> derive(s, rdfType, c)) ;
-            if ( setup.includeDerivedDataRDFS() ) {
-                subClass(o, rdfsSubClassOf, o) ;    // Recurse
-            }
-        }
-        if ( setup.includeDerivedDataRDFS() && p.equals(rdfsSubClassOf) ) {
-            Set<Node> superClasses = setup.getSuperClasses(o) ;
-            superClasses.forEach(c -> derive(o, p, c)) ;
-            Set<Node> subClasses = setup.getSubClasses(o) ;
-            subClasses.forEach(c -> derive(c, p, o)) ;
-            derive(s, p, s) ;
-            derive(o, p, o) ;
-        }
-    }
-
-    /*
-     * [rdfs5a: (?a rdfs:subPropertyOf ?b), (?b rdfs:subPropertyOf ?c) -> (?a rdfs:subPropertyOf ?c)] 
-     * [rdfs6: (?a ?p ?b), (?p rdfs:subPropertyOf ?q) -> (?a ?q ?b)]
-     */
-    private void subProperty(Node s, Node p, Node o) {
-        Set<Node> x = setup.getSuperProperties(p) ;
-        x.forEach(p2 -> derive(s, p2, o)) ;
-        if ( setup.includeDerivedDataRDFS() ) {
-            if ( ! x.isEmpty() )
-                subProperty(p, rdfsSubPropertyOf, p) ;
-            if ( p.equals(rdfsSubPropertyOf) ) {
-                // ** RDFS extra
-                Set<Node> superProperties = setup.getSuperProperties(o) ;
-                superProperties.forEach( c -> derive(o, p, c)) ;
-                Set<Node> subProperties = setup.getSubProperties(o) ;
-                subProperties.forEach(c -> derive(c, p, o)) ;
-                derive(s, p, s) ;
-                derive(o, p, o) ;
-            }
-        }
-    }
-
-    /*
-     * [rdfs2: (?p rdfs:domain ?c) -> [(?x rdf:type ?c) <- (?x ?p ?y)] ]
-     * [rdfs9: (?x rdfs:subClassOf ?y), (?a rdf:type ?x) -> (?a rdf:type ?y)]
-     */
-    final private void domain(Node s, Node p, Node o) {
-        Set<Node> x = setup.getDomain(p) ;
-        x.forEach(c -> {
-            derive(s, rdfType, c) ;
-            subClass(s, rdfType, c) ;
-            if ( setup.includeDerivedDataRDFS() )
-                derive(p, rdfsDomain, c) ;
-        }) ;
-    }
-
-    /*
-     * [rdfs3: (?p rdfs:range ?c) -> [(?y rdf:type ?c) <- (?x ?p ?y)] ]
-     * [rdfs9: (?x rdfs:subClassOf ?y), (?a rdf:type ?x) -> (?a rdf:type ?y)]
-     */
-    final private void range(Node s, Node p, Node o) {
-        // Mask out literal subjects
-        if ( o.isLiteral() )
-            return ;
-        // Range
-        Set<Node> x = setup.getRange(p) ;
-        x.forEach(c -> {
-            derive(o, rdfType, c) ;
-            subClass(o, rdfType, c) ;
-            if ( setup.includeDerivedDataRDFS() )
-                derive(p, rdfsRange, c) ;
-        }) ;
+    @Override
+    protected boolean isLiteral(Node node) {
+        return node.isLiteral() ;
     }
 }
-
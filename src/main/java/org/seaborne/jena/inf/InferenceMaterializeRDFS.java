@@ -0,0 +1,140 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.* ;
+import java.util.concurrent.* ;
+import java.util.function.Consumer ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.GraphUtil ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.shared.JenaException ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+
+/** Forward materialization of RDFS: apply the rules to all triples of a
+ * source graph and write the results (source and derived triples) to a
+ * destination.
+ * <p>
+ * The source is read in batches on the calling thread. Each batch is processed
+ * by a worker on a fork-join pool, with its own output set, so duplicates
+ * within a batch are removed in parallel. All workers share one engine. Results are written on
+ * the calling thread, which is the only writer of the destination; duplicates
+ * across batches are absorbed by the destination (a graph is a set).
+ * So the count returned by {@code materialize} is of triples emitted to the
+ * destination, an upper bound on the number of triples added to it.
+ * The number of batches in progress is bounded so a slow destination
+ * holds back reading the source.
+ * <p>
+ * Transactions on the destination are the caller's responsibility.
+ */
+public class InferenceMaterializeRDFS {
+    public static final int DefaultBatchSize = 10000 ;
+
+    // Reentrant - shared by all workers and all calls of materialize.
+    private final InferenceEngineRDFS engine ;
+    private final int parallelism ;
+    private final int batchSize ;
+
+    public InferenceMaterializeRDFS(InferenceSetupRDFS setup) {
+        this(setup, Runtime.getRuntime().availableProcessors(), DefaultBatchSize) ;
+    }
+
+    public InferenceMaterializeRDFS(InferenceSetupRDFS setup, int parallelism, int batchSize) {
+        if ( parallelism < 1 )
+            throw new IllegalArgumentException("Parallelism must be at least 1: "+parallelism) ;
+        if ( batchSize < 1 )
+            throw new IllegalArgumentException("Batch size must be at least 1: "+batchSize) ;
+        this.engine = new InferenceEngineRDFS(setup) ;
+        this.parallelism = parallelism ;
+        this.batchSize = batchSize ;
+    }
+
+    /** Materialize into a graph. Returns the number of triples emitted, which may include duplicates. */
+    public long materialize(Graph source, Graph dest) {
+        return materialize(source, batch -> GraphUtil.add(dest, batch)) ;
+    }
+
+    /** Materialize into a graph of a dataset. Returns the number of quads emitted, which may include duplicates. */
+    public long materialize(Graph source, DatasetGraph dest, Node graphName) {
+        return materialize(source, batch -> batch.forEach(t -> dest.add(Quad.create(graphName, t)))) ;
+    }
+
+    /** Materialize, sending each batch of results to the writer, always from the calling thread.
+     * Returns the number of triples sent to the writer: there are no duplicates within
+     * a batch but there may be across batches.
+     */
+    public long materialize(Graph source, Consumer<List<Triple>> writer) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism) ;
+        CompletionService<List<Triple>> results = new ExecutorCompletionService<>(pool) ;
+        int maxInflight = 2 * parallelism ;
+        int inflight = 0 ;
+        long count = 0 ;
+        ExtendedIterator<Triple> iter = source.find(Node.ANY, Node.ANY, Node.ANY) ;
+        try {
+            while ( iter.hasNext() ) {
+                List<Triple> batch = new ArrayList<>(batchSize) ;
+                while ( iter.hasNext() && batch.size() < batchSize )
+                    batch.add(iter.next()) ;
+                results.submit(() -> process(batch)) ;
+                inflight++ ;
+                if ( inflight >= maxInflight ) {
+                    count += write(results, writer) ;
+                    inflight-- ;
+                }
+            }
+            for ( ; inflight > 0 ; inflight-- )
+                count += write(results, writer) ;
+            return count ;
+        } finally {
+            iter.close() ;
+            pool.shutdownNow() ;
+        }
+    }
+
+    /** Process one batch: the result is the batch and everything derived from it, without duplicates. */ 
+    private List<Triple> process(List<Triple> batch) {
+        Set<Triple> acc = new HashSet<>(2*batch.size()) ;
+        BaseInfEngineRDFS.Output<Node> output = (s, p, o) -> acc.add(Triple.create(s, p, o)) ;
+        for ( Triple triple : batch ) {
+            acc.add(triple) ;
+            engine.process(triple.getSubject(), triple.getPredicate(), triple.getObject(), output) ;
+        }
+        return new ArrayList<>(acc) ;
+    }
+
+    private static long write(CompletionService<List<Triple>> results, Consumer<List<Triple>> writer) {
+        List<Triple> triples ;
+        try {
+            triples = results.take().get() ;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt() ;
+            throw new JenaException("Interrupted during materialization", ex) ;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            throw new JenaException(cause) ;
+        }
+        writer.accept(triples) ;
+        return triples.size() ;
+    }
+}
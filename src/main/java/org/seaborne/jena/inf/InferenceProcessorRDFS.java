@@ -28,22 +28,18 @@ import org.apache.jena.graph.Triple ;
 
 /** An inference processor for RDFS.
  * Adds derived triples to an accumulator.
+ * <p>
+ * There is no per-call state: one processor can be shared between threads.
  */
 public class InferenceProcessorRDFS {
-    private InferenceSetupRDFS setup ;
-    private Collection<Triple> acc = null ;
+    private final InferenceSetupRDFS setup ;
     private final InferenceEngineRDFS engine ;
-    private SinkTriple sink ;
     
     // Add iterator cases
     
     public InferenceProcessorRDFS(InferenceSetupRDFS setup) {
         this.setup = setup ;
-        this.sink = new SinkTriple() {
-            @Override
-            public void receive(Node s, Node p, Node o) { acc.add(Triple.create(s, p, o)) ; } 
-        };
-        this.engine = new InferenceEngineRDFS(setup, sink) ;
+        this.engine = new InferenceEngineRDFS(setup) ;
     }
 
     /** Calculate the set of triples from processing an iterator of triples */
@@ -91,11 +87,14 @@ public class InferenceProcessorRDFS {
     
     /** Accumulate the triples from processing triple t */
     public void process(Collection<Triple> acc, Node s, Node p, Node o) {
-        // Threading!
         acc.add(Triple.create(s,p,o)) ;
-        this.acc = acc ;
-        engine.process(s, p, o) ;
-        this.acc = null ;
+        engine.process(s, p, o, (s1, p1, o1) -> acc.add(Triple.create(s1, p1, o1))) ;
+    }
+
+    /** Send the triple and the triples derived from it to {@code output}. */
+    public void process(Node s, Node p, Node o, BaseInfEngineRDFS.Output<Node> output) {
+        output.derive(s, p, o) ;
+        engine.process(s, p, o, output) ;
     }
 
 }
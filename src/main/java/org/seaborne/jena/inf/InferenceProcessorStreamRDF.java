@@ -29,7 +29,7 @@ import org.apache.jena.sparql.core.Quad ;
  * Receive triples and quads (incoming because this is a StreamRDF); 
  * apply RDFS;
  * output to the StreamRDF provided.
- * Stream output may include duplicates.
+ * Stream output may include duplicates; see {@link StreamRDFDistinct}.
  */
 public class InferenceProcessorStreamRDF extends StreamRDFWrapper {
     // Combine into InferenceProcessorRDFS?
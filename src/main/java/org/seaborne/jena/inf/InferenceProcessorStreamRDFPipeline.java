@@ -0,0 +1,244 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.Deque ;
+import java.util.List ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFWrapper ;
+import org.apache.jena.shared.JenaException ;
+import org.apache.jena.sparql.core.Quad ;
+
+/** StreamRDF that applies RDFS to the stream using a pool of worker threads.
+ * <p>
+ * Incoming triples and quads are collected into batches on the calling (parser) thread.
+ * Each batch is processed by a worker into its own output buffer. Buffers are
+ * sent to the output StreamRDF from the calling thread, so the output is only
+ * ever called from one thread. Either the input order is preserved (each input
+ * item followed by its derivations, as {@link InferenceProcessorStreamRDF}), or
+ * batches are output as they complete.
+ * <p>
+ * The number of batches in progress is bounded; when the limit is reached, the
+ * calling thread waits for a batch to finish, which provides backpressure on the parser.
+ * Stream output may include duplicates. Prefixes and base are output in order
+ * with the triples and quads: pending batches are finished first.
+ * <p>
+ * The worker threads exist from {@link #start()} to {@link #finish()}. If the stream
+ * is abandoned (e.g. on a parse error), call {@link #close()} to stop them. 
+ * If a worker fails, the workers are stopped and the error is thrown to the calling thread.
+ */
+public class InferenceProcessorStreamRDFPipeline extends StreamRDFWrapper implements AutoCloseable {
+    public static final int DefaultBatchSize = 1000 ;
+
+    private final StreamRDF                 output ;
+    // Reentrant - shared by all workers.
+    private final InferenceEngineRDFS       engine ;
+    private final boolean                   preserveOrder ;
+    private final int                       batchSize ;
+    private final int                       workers ;
+    private final int                       maxInflight ;
+    // From start() to finish() or close().
+    private volatile ExecutorService        executor = null ;
+    // preserveOrder: batches in submission order.
+    private final Deque<Future<List<Object>>> inflightOrdered = new ArrayDeque<>() ;
+    // Not preserveOrder: batches as they complete.
+    private CompletionService<List<Object>> inflightAny = null ;
+    private int                             inflight = 0 ;
+    // Triples and quads.
+    private List<Object>                    batch ;
+
+    public InferenceProcessorStreamRDFPipeline(StreamRDF output, InferenceSetupRDFS setup, int workers, boolean preserveOrder) {
+        this(output, setup, workers, DefaultBatchSize, preserveOrder) ;
+    }
+
+    public InferenceProcessorStreamRDFPipeline(StreamRDF output, InferenceSetupRDFS setup, int workers, int batchSize, boolean preserveOrder) {
+        super(output) ;
+        if ( workers < 1 )
+            throw new IllegalArgumentException("Workers must be at least 1: "+workers) ;
+        if ( batchSize < 1 )
+            throw new IllegalArgumentException("Batch size must be at least 1: "+batchSize) ;
+        this.output = output ;
+        this.engine = new InferenceEngineRDFS(setup) ;
+        this.preserveOrder = preserveOrder ;
+        this.batchSize = batchSize ;
+        this.workers = workers ;
+        this.maxInflight = 2 * workers ;
+        this.batch = new ArrayList<>(batchSize) ;
+    }
+
+    @Override
+    public void start() {
+        if ( executor != null )
+            throw new IllegalStateException("Already started") ;
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "RDFS inference") ;
+            thread.setDaemon(true) ;
+            return thread ;
+        }) ;
+        inflightAny = preserveOrder ? null : new ExecutorCompletionService<>(executor) ;
+        // Anything left from a stream that was closed. 
+        inflightOrdered.clear() ;
+        inflight = 0 ;
+        batch = new ArrayList<>(batchSize) ;
+        super.start() ;
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        add(triple) ;
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        add(quad) ;
+    }
+
+    /** Prefixes are sent after all the triples and quads before them. */
+    @Override
+    public void prefix(String prefix, String iri) {
+        flush() ;
+        super.prefix(prefix, iri) ;
+    }
+
+    /** The base is sent after all the triples and quads before it. */
+    @Override
+    public void base(String base) {
+        flush() ;
+        super.base(base) ;
+    }
+
+    @Override
+    public void finish() {
+        try {
+            flush() ;
+        } finally {
+            close() ;
+        }
+        super.finish() ;
+    }
+
+    /** Send everything received so far to the output. */
+    private void flush() {
+        submit() ;
+        while ( inflight > 0 )
+            emitOne() ;
+    }
+
+    /** Stop the workers, discarding batches not yet output.
+     * Use when the stream is abandoned before {@link #finish()}. 
+     * May be called from any thread, and more than once.
+     */
+    @Override
+    public void close() {
+        ExecutorService x = executor ;
+        if ( x == null )
+            return ;
+        executor = null ;
+        // Batches not yet started: cancel, so that anyone waiting for one does not wait forever.
+        for ( Runnable r : x.shutdownNow() ) {
+            if ( r instanceof Future<?> )
+                ((Future<?>)r).cancel(false) ;
+        }
+    }
+
+    private void add(Object item) {
+        batch.add(item) ;
+        if ( batch.size() >= batchSize )
+            submit() ;
+    }
+
+    private void submit() {
+        if ( batch.isEmpty() )
+            return ;
+        ExecutorService x = executor ;
+        if ( x == null )
+            throw new IllegalStateException("Not started, or closed") ;
+        List<Object> items = batch ;
+        batch = new ArrayList<>(batchSize) ;
+        Callable<List<Object>> task = () -> process(items) ;
+        if ( preserveOrder )
+            inflightOrdered.add(x.submit(task)) ;
+        else
+            inflightAny.submit(task) ;
+        inflight++ ;
+        if ( inflight >= maxInflight )
+            emitOne() ;
+    }
+
+    /** Wait for one batch and send it to the output. */ 
+    private void emitOne() {
+        List<Object> results ;
+        try {
+            Future<List<Object>> future = preserveOrder ? inflightOrdered.removeFirst() : inflightAny.take() ;
+            inflight-- ;
+            results = future.get() ;
+        } catch (InterruptedException ex) {
+            close() ;
+            Thread.currentThread().interrupt() ;
+            throw new JenaException("Interrupted during inference", ex) ;
+        } catch (CancellationException ex) {
+            close() ;
+            throw new JenaException("Inference stopped", ex) ;
+        } catch (ExecutionException ex) {
+            // No point in continuing: stop the other workers.
+            close() ;
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            throw new JenaException(cause) ;
+        }
+        for ( Object item : results ) {
+            if ( item instanceof Triple )
+                output.triple((Triple)item) ;
+            else
+                output.quad((Quad)item) ;
+        }
+    }
+
+    /** Worker: each input item followed by the items derived from it. */
+    private List<Object> process(List<Object> items) {
+        List<Object> acc = new ArrayList<>(4*items.size()) ;
+        // Graph of the current item, null for a triple.
+        Node[] graph = new Node[1] ;
+        BaseInfEngineRDFS.Output<Node> out = (s, p, o) -> {
+            if ( graph[0] == null )
+                acc.add(Triple.create(s, p, o)) ;
+            else
+                acc.add(Quad.create(graph[0], s, p, o)) ;
+        } ;
+        for ( Object item : items ) {
+            acc.add(item) ;
+            if ( item instanceof Triple ) {
+                Triple triple = (Triple)item ;
+                graph[0] = null ;
+                engine.process(triple.getSubject(), triple.getPredicate(), triple.getObject(), out) ;
+            } else {
+                Quad quad = (Quad)item ;
+                graph[0] = quad.getGraph() ;
+                engine.process(quad.getSubject(), quad.getPredicate(), quad.getObject(), out) ;
+            }
+        }
+        return acc ;
+    }
+}
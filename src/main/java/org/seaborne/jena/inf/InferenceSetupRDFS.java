@@ -17,6 +17,10 @@
 
 package org.seaborne.jena.inf ;
 
+import java.nio.IntBuffer ;
+import java.util.List ;
+import java.util.function.Supplier ;
+
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.rdf.model.Model ;
@@ -38,6 +42,11 @@ public class InferenceSetupRDFS extends BaseInfSetupRDFS<Node>{
        super(vocab, incDerivedDataRDFS) ;
     }
 
+    /** Setup from tables previously computed: see {@link SnapshotRDFS}. */
+    InferenceSetupRDFS(Supplier<Graph> vocab, boolean incDerivedDataRDFS, List<Node> terms, IntBuffer[] offsets, IntBuffer[] values) {
+        super(vocab, incDerivedDataRDFS, terms, offsets, values) ;
+    }
+
     @Override
     protected Node fromNode(Node node) {
         return node ;
@@ -17,40 +17,218 @@
 
 package org.seaborne.jena.inf ;
 
+import java.util.Map ;
+import java.util.concurrent.ConcurrentHashMap ;
+import java.util.concurrent.atomic.AtomicLong ;
+import java.util.function.Function ;
+
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.tdb.TDBException ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.sys.TDBInternal ;
+import org.apache.jena.tdb.transaction.DatasetGraphTransaction ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
 
-/*8 RDFS setup in NodeId space */
+/** RDFS setup in NodeId space.
+ * <p>
+ * Vocabulary terms are resolved read-only: the node table is not changed.
+ * A term that is not in the node table, such as a superclass that does not
+ * occur in the data, is given a "virtual" NodeId which is only known to this setup.
+ * If such a term is later added to the node table, the setup is out of date
+ * ({@link #isCurrent}) and {@link #refresh} makes a new one. 
+ * <p>
+ * The dataset may be transactional; the vocabulary is resolved in the
+ * caller's transaction, or a read transaction if there is none.
+ */
 public class InferenceSetupRDFS_TDB extends BaseInfSetupRDFS<NodeId>{
-    private final DatasetGraphTDB dsgtdb ;
-    private final NodeTable nodetable ;
+    // Virtual NodeIds: type bits zero (not inline), and far beyond any real node table offset.
+    private static final long VirtualBase = 0x00F0_0000_0000_0000L ;
 
-    public InferenceSetupRDFS_TDB(Graph vocab, DatasetGraphTDB dsgtdb) {
-        this(vocab, dsgtdb, false) ;
+    private final DatasetGraph dataset ;
+    private final Graph vocab ;
+    private final boolean incDerivedDataRDFS ;
+    private final Resolver resolver ;
+    // Allocation mark of a node table for which this setup was found to be current.
+    private volatile long checkedMark = -1 ;
+
+    public InferenceSetupRDFS_TDB(Graph vocab, DatasetGraph dataset) {
+        this(vocab, dataset, false) ;
     }
 
-    public InferenceSetupRDFS_TDB(Graph vocab, DatasetGraphTDB dsgtdb, boolean incDerivedDataRDFS) {
-        super(vocab, incDerivedDataRDFS) ;
-        this.dsgtdb = dsgtdb ;
-        this.nodetable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable() ;
+    public InferenceSetupRDFS_TDB(Graph vocab, DatasetGraph dataset, boolean incDerivedDataRDFS) {
+        this(vocab, dataset, incDerivedDataRDFS, Resolver.resolve(vocab, dataset)) ;
     }
-    public InferenceSetupRDFS_TDB(Model vocab, DatasetGraphTDB dsgtdb) {
-        this(vocab, dsgtdb, false) ;
+
+    public InferenceSetupRDFS_TDB(Model vocab, DatasetGraph dataset) {
+        this(vocab, dataset, false) ;
     }
     
-    public InferenceSetupRDFS_TDB(Model vocab, DatasetGraphTDB dsgtdb, boolean incDerivedDataRDFS) {
-       super(vocab, incDerivedDataRDFS) ;
-       this.dsgtdb = dsgtdb ;
-       this.nodetable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable() ;
+    public InferenceSetupRDFS_TDB(Model vocab, DatasetGraph dataset, boolean incDerivedDataRDFS) {
+        this(vocab.getGraph(), dataset, incDerivedDataRDFS) ;
+    }
+
+    // fromNode is called from the superclass constructor, before any fields are set.
+    // The vocabulary has already been resolved so no transaction is needed.
+    private InferenceSetupRDFS_TDB(Graph vocab, DatasetGraph dataset, boolean incDerivedDataRDFS, Resolver resolver) {
+        super(vocab, incDerivedDataRDFS, resolver) ;
+        this.dataset = dataset ;
+        this.vocab = vocab ;
+        this.incDerivedDataRDFS = incDerivedDataRDFS ;
+        this.resolver = resolver ;
     }
 
     @Override
     protected NodeId fromNode(Node node) {
-        NodeId n = nodetable.getAllocateNodeId(node) ;
-        return n ;
+        return resolver.apply(node) ;
+    }
+
+    /** Go from NodeId space to Node space, including virtual NodeIds. */
+    public Node toNode(NodeId id, NodeTable nodeTable) {
+        Node n = resolver.virtualNodes.get(id) ;
+        if ( n != null )
+            return n ;
+        return nodeTable.getNodeForNodeId(id) ;
+    }
+
+    /** The virtual NodeId for a vocabulary term not in the node table, or null. */
+    public NodeId getVirtualNodeId(Node node) {
+        return resolver.virtualIds.get(node) ;
+    }
+
+    /** Return true if no virtual NodeId term has since been added to the node table.
+     * The terms are only looked up if the node table has grown since the last check.
+     */
+    public boolean isCurrent(NodeTable nodeTable) {
+        if ( resolver.virtualIds.isEmpty() )
+            return true ;
+        long mark = nodeTable.allocOffset().getId() ;
+        if ( mark <= checkedMark )
+            return true ;
+        for ( Node n : resolver.virtualIds.keySet() ) {
+            if ( ! NodeId.isDoesNotExist(nodeTable.getNodeIdForNode(n)) )
+                return false ;
+        }
+        checkedMark = mark ;
+        return true ;
+    }
+
+    /** A new setup for the same vocabulary and dataset, resolved afresh. */
+    public InferenceSetupRDFS_TDB refresh() {
+        return new InferenceSetupRDFS_TDB(vocab, dataset, incDerivedDataRDFS) ;
+    }
+
+    /** The dataset, which may be transactional. */
+    public DatasetGraph getDataset() {
+        return dataset ;
+    }
+
+    /** The storage for the current transaction, if any, else the base storage. */
+    public DatasetGraphTDB getDatasetGraphTDB() {
+        return datasetGraphTDB(dataset) ;
+    }
+
+    /** The node table of the current transaction, if any, else the base storage. */
+    public NodeTable getNodeTable() {
+        return getDatasetGraphTDB().getTripleTable().getNodeTupleTable().getNodeTable() ;
+    }
+
+    /** The allocation offset of the node table of the committed storage: NodeIds
+     * below it are for committed nodes. Does not need a transaction.
+     */
+    long committedAllocOffset() {
+        DatasetGraphTDB dsgtdb = ( dataset instanceof DatasetGraphTransaction )
+            ? ((DatasetGraphTransaction)dataset).getBaseDatasetGraph()
+            : datasetGraphTDB(dataset) ;
+        return dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable().allocOffset().getId() ;
+    }
+
+    static DatasetGraphTDB datasetGraphTDB(DatasetGraph dataset) {
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dataset) ;
+        if ( dsgtdb == null )
+            throw new TDBException("Not a TDB dataset: "+dataset.getClass().getSimpleName()) ;
+        return dsgtdb ;
+    }
+
+    /** Node to NodeId, read-only, with virtual NodeIds for terms not in the node table.
+     * Lookups are remembered so later calls (outside the construction transaction) agree.
+     */
+    private static class Resolver implements Function<Node, NodeId> {
+        private final DatasetGraph dataset ;
+        private final Map<Node, NodeId> resolved = new ConcurrentHashMap<>() ;
+        private final Map<Node, NodeId> virtualIds = new ConcurrentHashMap<>() ;
+        private final Map<NodeId, Node> virtualNodes = new ConcurrentHashMap<>() ;
+        private final AtomicLong counter = new AtomicLong(VirtualBase) ;
+
+        private Resolver(DatasetGraph dataset) {
+            this.dataset = dataset ;
+        }
+
+        /** A resolver with the RDFS terms and all the terms of the vocabulary already resolved,
+         * in the caller's transaction or else in one read transaction.
+         */
+        static Resolver resolve(Graph vocab, DatasetGraph dataset) {
+            Resolver resolver = new Resolver(dataset) ;
+            boolean txn = false ;
+            if ( dataset instanceof DatasetGraphTransaction && ! dataset.isInTransaction() ) {
+                dataset.begin(ReadWrite.READ) ;
+                txn = true ;
+            }
+            try {
+                for ( Node p : vocabProperties ) {
+                    resolver.apply(p) ;
+                    ExtendedIterator<Triple> iter = vocab.find(Node.ANY, p, Node.ANY) ;
+                    try {
+                        while ( iter.hasNext() ) {
+                            Triple triple = iter.next() ;
+                            resolver.apply(triple.getSubject()) ;
+                            resolver.apply(triple.getObject()) ;
+                        }
+                    } finally { iter.close() ; }
+                }
+                resolver.apply(InfGlobal.rdfType) ;
+            } finally {
+                if ( txn )
+                    dataset.end() ;
+            }
+            return resolver ;
+        }
+
+        private static final Node[] vocabProperties = {
+            InfGlobal.rdfsSubClassOf, InfGlobal.rdfsSubPropertyOf, InfGlobal.rdfsDomain, InfGlobal.rdfsRange
+        } ;
+
+        @Override
+        public NodeId apply(Node node) {
+            NodeId id = resolved.get(node) ;
+            if ( id != null )
+                return id ;
+            boolean txn = false ;
+            if ( dataset instanceof DatasetGraphTransaction && ! dataset.isInTransaction() ) {
+                dataset.begin(ReadWrite.READ) ;
+                txn = true ;
+            }
+            try {
+                NodeTable nodeTable = datasetGraphTDB(dataset).getTripleTable().getNodeTupleTable().getNodeTable() ;
+                id = nodeTable.getNodeIdForNode(node) ;
+            } finally {
+                if ( txn )
+                    dataset.end() ;
+            }
+            if ( NodeId.isDoesNotExist(id) )
+                id = virtualIds.computeIfAbsent(node, n->{
+                    NodeId vid = NodeId.create(counter.getAndIncrement()) ;
+                    virtualNodes.put(vid, n) ;
+                    return vid ;
+                }) ;
+            resolved.put(node, id) ;
+            return id ;
+        }
     }
 }
@@ -0,0 +1,300 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.nio.IntBuffer ;
+import java.util.Arrays ;
+import java.util.Collections ;
+import java.util.Set ;
+
+/** Map from int keys to sets of ints.
+ * <p>
+ * Each key has one row, a sorted int array with no duplicates, 
+ * so the whole structure is a CSR-style table with a separate array per row.
+ * Rows are built with {@link #add} then {@link #compact} must be called
+ * before any lookups.
+ * <p>
+ * After building, rows can be changed with {@link #insert}, {@link #remove} and
+ * {@link #replace}. These are copy-on-write: a row array, once returned by
+ * {@link #get}, is never modified.
+ * <p>
+ * Alternatively, the rows can come from a read-only CSR table in buffers
+ * ({@link #setBase}), which may be memory mapped. Changes are then made 
+ * in rows on the heap which take the place of the base rows for their keys.
+ */
+class IntMultimap {
+    static final int[] EMPTY = new int[0] ;
+
+    // Volatile so that row changes are published by the write-back of the array. 
+    private volatile int[][] rows = new int[16][] ;
+    // Build state : number of slots used in each row.
+    private int[] used = new int[16] ;
+    private boolean compacted = true ;
+    private int keyCount = 0 ;
+
+    // Read-only base rows: row i is values[offsets[i]..offsets[i+1]).
+    // A heap row, even an empty one, overrides the base row.
+    private IntBuffer baseOffsets = null ;
+    private IntBuffer baseValues = null ;
+    private int baseKeys = 0 ;
+
+    /** Use a CSR table as the rows, without copying. Only for an empty multimap. */
+    void setBase(IntBuffer offsets, IntBuffer values, int keys) {
+        baseOffsets = offsets ;
+        baseValues = values ;
+        baseKeys = keys ;
+        keyCount = 0 ;
+        for ( int i = 0 ; i < keys ; i++ ) {
+            if ( offsets.get(i+1) > offsets.get(i) )
+                keyCount++ ;
+        }
+    }
+
+    /** Add a value to the row for key. */
+    void add(int key, int value) {
+        ensureCapacity(key) ;
+        int[] row = rows[key] ;
+        int n = used[key] ;
+        if ( row == null ) {
+            row = new int[4] ;
+            rows[key] = row ;
+            keyCount++ ;
+        } else if ( n == row.length ) {
+            row = Arrays.copyOf(row, 2*n) ;
+            rows[key] = row ;
+        }
+        row[n] = value ;
+        used[key] = n+1 ;
+        compacted = false ;
+    }
+
+    /** Set the row for key. The row must be sorted with no duplicates and is not copied. */
+    void set(int key, int[] row) {
+        ensureCapacity(key) ;
+        if ( rows[key] == null )
+            keyCount++ ;
+        rows[key] = row ;
+        used[key] = row.length ;
+    }
+
+    /** Add a value to the row for key, keeping it sorted. Returns true if the row changed. */
+    boolean insert(int key, int value) {
+        int[] row = get(key) ;
+        int idx = Arrays.binarySearch(row, value) ;
+        if ( idx >= 0 )
+            return false ;
+        int pos = -(idx+1) ;
+        int[] x = new int[row.length+1] ;
+        System.arraycopy(row, 0, x, 0, pos) ;
+        x[pos] = value ;
+        System.arraycopy(row, pos, x, pos+1, row.length-pos) ;
+        setRow(key, x) ;
+        return true ;
+    }
+
+    /** Remove a value from the row for key. Returns true if the row changed. */
+    boolean remove(int key, int value) {
+        int[] row = get(key) ;
+        int pos = Arrays.binarySearch(row, value) ;
+        if ( pos < 0 )
+            return false ;
+        int[] x = new int[row.length-1] ;
+        System.arraycopy(row, 0, x, 0, pos) ;
+        System.arraycopy(row, pos+1, x, pos, row.length-pos-1) ;
+        setRow(key, x) ;
+        return true ;
+    }
+
+    /** Replace the row for key (sorted, no duplicates). Returns true if the row changed. */
+    boolean replace(int key, int[] row) {
+        if ( Arrays.equals(get(key), row) )
+            return false ;
+        setRow(key, row) ;
+        return true ;
+    }
+
+    // Set or clear a row and publish the change. 
+    private void setRow(int key, int[] row) {
+        boolean had = rowSize(key) > 0 ;
+        ensureCapacity(key) ;
+        int[][] x = rows ;
+        if ( row.length == 0 ) {
+            if ( had )
+                keyCount-- ;
+            // An empty row hides any base row.
+            x[key] = ( key < baseKeys ) ? EMPTY : null ;
+            used[key] = 0 ;
+        } else {
+            if ( ! had )
+                keyCount++ ;
+            x[key] = row ;
+            used[key] = row.length ;
+        }
+        rows = x ;
+    }
+
+    /** Union of two sorted arrays with no duplicates. */
+    static int[] union(int[] a, int[] b) {
+        if ( a.length == 0 )
+            return b ;
+        if ( b.length == 0 )
+            return a ;
+        int[] x = new int[a.length+b.length] ;
+        int i = 0, j = 0, k = 0 ;
+        while ( i < a.length && j < b.length ) {
+            if ( a[i] < b[j] )
+                x[k++] = a[i++] ;
+            else if ( a[i] > b[j] )
+                x[k++] = b[j++] ;
+            else {
+                x[k++] = a[i++] ;
+                j++ ;
+            }
+        }
+        while ( i < a.length )
+            x[k++] = a[i++] ;
+        while ( j < b.length )
+            x[k++] = b[j++] ;
+        return ( k == x.length ) ? x : Arrays.copyOf(x, k) ;
+    }
+
+    /** Sort each row, remove duplicates and trim to size. */
+    void compact() {
+        if ( compacted )
+            return ;
+        for ( int key = 0 ; key < rows.length ; key++ ) {
+            int[] row = rows[key] ;
+            if ( row == null )
+                continue ;
+            rows[key] = sortedUnique(row, used[key]) ;
+            used[key] = rows[key].length ;
+        }
+        compacted = true ;
+    }
+
+    /** The row for a key, sorted; empty if there is no entry for the key. Do not modify.
+     * A row from the base is copied.
+     */
+    int[] get(int key) {
+        if ( key < 0 )
+            return EMPTY ;
+        int[][] x = rows ;
+        if ( key < x.length && x[key] != null )
+            return x[key] ;
+        if ( key >= baseKeys )
+            return EMPTY ;
+        int start = baseOffsets.get(key) ;
+        int end = baseOffsets.get(key+1) ;
+        if ( start == end )
+            return EMPTY ;
+        int[] row = new int[end-start] ;
+        IntBuffer b = baseValues.duplicate() ;
+        b.position(start) ;
+        b.get(row) ;
+        return row ;
+    }
+
+    /** Set view of the row for a key, with an optional extra element {@code self}.
+     * Empty, without {@code self}, if there is no entry for the key.
+     * A row from the base is not copied. 
+     */
+    <X> Set<X> getSet(TermDictionary<X> dict, int key, int self) {
+        if ( key < 0 )
+            return Collections.emptySet() ;
+        int[][] x = rows ;
+        if ( key < x.length && x[key] != null ) {
+            int[] row = x[key] ;
+            if ( row.length == 0 )
+                return Collections.emptySet() ;
+            return new DenseSet<>(dict, row, self) ;
+        }
+        if ( key >= baseKeys )
+            return Collections.emptySet() ;
+        int start = baseOffsets.get(key) ;
+        int end = baseOffsets.get(key+1) ;
+        if ( start == end )
+            return Collections.emptySet() ;
+        IntBuffer b = baseValues.duplicate() ;
+        b.position(start) ;
+        b.limit(end) ;
+        return new DenseBufferSet<>(dict, b.slice(), self) ;
+    }
+
+    /** Does the row for key contain value? */
+    boolean contains(int key, int value) {
+        if ( key < 0 )
+            return false ;
+        int[][] x = rows ;
+        if ( key < x.length && x[key] != null )
+            return Arrays.binarySearch(x[key], value) >= 0 ;
+        if ( key >= baseKeys )
+            return false ;
+        return DenseBufferSet.binarySearch(baseValues, baseOffsets.get(key), baseOffsets.get(key+1), value) >= 0 ;
+    }
+
+    /** Number of elements in the row for key. */
+    private int rowSize(int key) {
+        int[][] x = rows ;
+        if ( key < x.length && x[key] != null )
+            return x[key].length ;
+        if ( key >= baseKeys )
+            return 0 ;
+        return baseOffsets.get(key+1) - baseOffsets.get(key) ;
+    }
+
+    /** Keys with a non-empty row, in increasing order. */
+    int[] keys() {
+        int n = Math.max(rows.length, baseKeys) ;
+        int[] keys = new int[n] ;
+        int count = 0 ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            if ( rowSize(i) > 0 )
+                keys[count++] = i ;
+        }
+        return Arrays.copyOf(keys, count) ;
+    }
+
+    /** Number of keys with an entry. */
+    int keyCount() {
+        return keyCount ;
+    }
+
+    boolean isEmpty() {
+        return keyCount == 0 ;
+    }
+
+    private void ensureCapacity(int key) {
+        if ( key < rows.length )
+            return ;
+        int n = Math.max(key+1, 2*rows.length) ;
+        rows = Arrays.copyOf(rows, n) ;
+        used = Arrays.copyOf(used, n) ;
+    }
+
+    static int[] sortedUnique(int[] array, int len) {
+        int[] x = Arrays.copyOf(array, len) ;
+        Arrays.sort(x) ;
+        int j = 0 ;
+        for ( int i = 0 ; i < x.length ; i++ ) {
+            if ( j > 0 && x[j-1] == x[i] )
+                continue ;
+            x[j++] = x[i] ;
+        }
+        return ( j == x.length ) ? x : Arrays.copyOf(x, j) ;
+    }
+}
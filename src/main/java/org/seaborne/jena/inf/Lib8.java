@@ -22,6 +22,9 @@ import java.util.stream.Collectors ;
 import java.util.stream.Stream ;
 import java.util.stream.StreamSupport ;
 
+import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.util.iterator.WrappedIterator ;
+
 public class Lib8 {
     /** Iterator to Stream */ 
     public static <T> Stream<T> stream(Iterator<? extends T> iterator) {
@@ -29,6 +32,16 @@ public class Lib8 {
         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false);
     }
     
+    /** Stream to ExtendedIterator; closing the iterator closes the stream. */ 
+    public static <T> ExtendedIterator<T> iterator(Stream<T> stream) {
+        return new WrappedIterator<T>(stream.iterator(), true) {
+            @Override
+            public void close() {
+                stream.close() ;
+            }
+        } ;
+    }
+
     public static <X> List<X> toList(Stream<X> stream) {
         return stream.collect(Collectors.toList()) ;
     }
@@ -0,0 +1,153 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+import java.util.concurrent.atomic.LongAccumulator ;
+import java.util.concurrent.atomic.LongAdder ;
+import java.util.function.Function ;
+
+/** Metrics by counters and latency histograms, per find branch and per rule. */
+public class MetricsCollectorRDFS implements MetricsRDFS, MetricsCollectorRDFSMXBean {
+    // Power-of-2 microsecond buckets; the last one is everything longer.
+    static final int Buckets = 32 ;
+
+    private static final Branch[] branches = Branch.values() ;
+    private static final Rule[] rules = Rule.values() ;
+
+    private final LongAdder[] findCount     = adders(branches.length) ;
+    private final LongAdder[] findNanos     = adders(branches.length) ;
+    private final LongAdder[] sourceFinds   = adders(branches.length) ;
+    private final LongAdder[] scanned       = adders(branches.length) ;
+    private final LongAdder[] returned      = adders(branches.length) ;
+    private final LongAccumulator[] distinctMax = new LongAccumulator[branches.length] ;
+    private final LongAdder[][] histograms  = new LongAdder[branches.length][] ;
+    private final LongAdder[] derived       = adders(rules.length) ;
+
+    public MetricsCollectorRDFS() {
+        for ( int i = 0 ; i < branches.length ; i++ ) {
+            distinctMax[i] = new LongAccumulator(Math::max, 0) ;
+            histograms[i] = adders(Buckets) ;
+        }
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] x = new LongAdder[n] ;
+        for ( int i = 0 ; i < n ; i++ )
+            x[i] = new LongAdder() ;
+        return x ;
+    }
+
+    @Override
+    public void find(Branch branch, long nanos, long sourceFinds, long scanned, long returned, long distinctSize) {
+        int i = branch.ordinal() ;
+        this.findCount[i].increment() ;
+        this.findNanos[i].add(nanos) ;
+        this.sourceFinds[i].add(sourceFinds) ;
+        this.scanned[i].add(scanned) ;
+        this.returned[i].add(returned) ;
+        this.distinctMax[i].accumulate(distinctSize) ;
+        this.histograms[i][bucket(nanos)].increment() ;
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1000 ;
+        int b = 64 - Long.numberOfLeadingZeros(micros) ;
+        return Math.min(b, Buckets-1) ;
+    }
+
+    @Override
+    public void derived(Rule rule, long count) {
+        derived[rule.ordinal()].add(count) ;
+    }
+
+    /** Number of finds for a branch. */
+    public long getFindCount(Branch branch) {
+        return findCount[branch.ordinal()].sum() ;
+    }
+
+    /** Number of triples derived by a rule. */
+    public long getDerivedCount(Rule rule) {
+        return derived[rule.ordinal()].sum() ;
+    }
+
+    @Override
+    public Map<String, Long> getFindCounts()        { return byBranch(i -> findCount[i].sum()) ; }
+
+    @Override
+    public Map<String, Long> getSourceFinds()       { return byBranch(i -> sourceFinds[i].sum()) ; }
+
+    @Override
+    public Map<String, Long> getTriplesScanned()    { return byBranch(i -> scanned[i].sum()) ; }
+
+    @Override
+    public Map<String, Long> getTriplesReturned()   { return byBranch(i -> returned[i].sum()) ; }
+
+    @Override
+    public Map<String, Long> getDistinctMax()       { return byBranch(i -> distinctMax[i].get()) ; }
+
+    @Override
+    public Map<String, Double> getMeanLatencyMicros() {
+        return byBranch(i -> {
+            long n = findCount[i].sum() ;
+            return n == 0 ? 0.0 : findNanos[i].sum() / (1000.0 * n) ;
+        }) ;
+    }
+
+    @Override
+    public Map<String, long[]> getLatencyHistograms() {
+        return byBranch(i -> {
+            long[] x = new long[Buckets] ;
+            for ( int j = 0 ; j < Buckets ; j++ )
+                x[j] = histograms[i][j].sum() ;
+            return x ;
+        }) ;
+    }
+
+    @Override
+    public Map<String, Long> getDerivedCounts() {
+        Map<String, Long> x = new LinkedHashMap<>() ;
+        for ( Rule rule : rules )
+            x.put(rule.name(), derived[rule.ordinal()].sum()) ;
+        return x ;
+    }
+
+    private static <V> Map<String, V> byBranch(Function<Integer, V> value) {
+        Map<String, V> x = new LinkedHashMap<>() ;
+        for ( Branch branch : branches )
+            x.put(branch.name(), value.apply(branch.ordinal())) ;
+        return x ;
+    }
+
+    @Override
+    public void reset() {
+        for ( int i = 0 ; i < branches.length ; i++ ) {
+            findCount[i].reset() ;
+            findNanos[i].reset() ;
+            sourceFinds[i].reset() ;
+            scanned[i].reset() ;
+            returned[i].reset() ;
+            distinctMax[i].reset() ;
+            for ( LongAdder a : histograms[i] )
+                a.reset() ;
+        }
+        for ( LongAdder a : derived )
+            a.reset() ;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.Map ;
+
+/** JMX view of {@link MetricsCollectorRDFS}. Keys are the names of 
+ * {@link MetricsRDFS.Branch} and {@link MetricsRDFS.Rule}.
+ */
+public interface MetricsCollectorRDFSMXBean {
+    public Map<String, Long> getFindCounts() ;
+    public Map<String, Long> getSourceFinds() ;
+    public Map<String, Long> getTriplesScanned() ;
+    public Map<String, Long> getTriplesReturned() ;
+    public Map<String, Long> getDistinctMax() ;
+    public Map<String, Double> getMeanLatencyMicros() ;
+    /** Bucket i counts finds taking less than 2^i microseconds (and at least 2^(i-1), i > 0). */
+    public Map<String, long[]> getLatencyHistograms() ;
+    public Map<String, Long> getDerivedCounts() ;
+    public void reset() ;
+}
@@ -0,0 +1,55 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+/** Receiver of metrics from {@link GraphRDFS} and the inference engines.
+ * Install one with {@link InfMetrics#set}; the default is none, in which
+ * case no metrics are collected.
+ * <p>
+ * Implementations must be safe to call from several threads. 
+ * 
+ * @see MetricsCollectorRDFS
+ */
+public interface MetricsRDFS {
+    /** The branches of {@code GraphRDFS.find}, by the form of the pattern. */ 
+    public enum Branch {
+        X_type_T, X_type_ANY, ANY_type_T, ANY_type_ANY,
+        X_ANY_T, X_ANY_ANY, ANY_ANY_T, ANY_ANY_ANY,
+        subproperty
+    }
+
+    /** The RDFS rules. */
+    public enum Rule { SUBCLASS, SUBPROPERTY, DOMAIN, RANGE }
+
+    /** A find has finished: the iterator has been used up or closed.
+     * @param branch        The branch taken
+     * @param nanos         Time from the call of find to the end of the iterator.  
+     * @param sourceFinds   Number of finds and contains probes on the underlying graph
+     * @param scanned       Number of triples read from the underlying graph
+     * @param returned      Number of triples returned by the find
+     * @param distinctSize  Size of the largest set used to remove duplicates (0 for none)
+     */
+    public void find(Branch branch, long nanos, long sourceFinds, long scanned, long returned, long distinctSize) ;
+
+    /** Number of triples derived by a rule.
+     * A triple is counted under the rule that produced it: for the superclasses
+     * of a domain or range class, that is {@link Rule#SUBCLASS}, not
+     * {@link Rule#DOMAIN} or {@link Rule#RANGE}. 
+     */
+    public void derived(Rule rule, long count) ;
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import org.apache.jena.query.Query ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.engine.Plan ;
+import org.apache.jena.sparql.engine.QueryEngineFactory ;
+import org.apache.jena.sparql.engine.QueryEngineRegistry ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.main.QueryEngineMain ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.sparql.util.Symbol ;
+
+/** Query engine that executes SPARQL with RDFS by rewriting BGPs ({@link TransformRDFS})
+ * and then running the rewritten query over the data as normal.
+ * <p>
+ * Used for a dataset when its context has {@link #symSetup} set to an
+ * {@link InferenceSetupRDFS}: see {@link #enable}.
+ */
+public class QueryEngineRDFS extends QueryEngineMain {
+    /** Context symbol : the {@link InferenceSetupRDFS} to use. */ 
+    public static final Symbol symSetup = Symbol.create("http://seaborne.org/jena/inf#setup") ;
+
+    private static volatile boolean registered = false ;
+
+    /** Register the query engine factory with ARQ. */
+    public static synchronized void register() {
+        if ( registered )
+            return ;
+        QueryEngineRegistry.addFactory(factory) ;
+        registered = true ;
+    }
+
+    /** Query this dataset with RDFS, using query rewriting. */
+    public static void enable(DatasetGraph dsg, InferenceSetupRDFS setup) {
+        register() ;
+        dsg.getContext().set(symSetup, setup) ;
+    }
+
+    private final InferenceSetupRDFS setup ;
+
+    public QueryEngineRDFS(Query query, DatasetGraph dataset, Binding input, Context context) {
+        super(query, dataset, input, context) ;
+        this.setup = setup(dataset, context) ;
+    }
+
+    public QueryEngineRDFS(Op op, DatasetGraph dataset, Binding input, Context context) {
+        super(op, dataset, input, context) ;
+        this.setup = setup(dataset, context) ;
+    }
+
+    @Override
+    protected Op modifyOp(Op op) {
+        op = TransformRDFS.rewrite(op, setup) ;
+        return super.modifyOp(op) ;
+    }
+
+    /** The setup from the execution context, else from the dataset's context.
+     * Engine factories are chosen before the execution context is set up,
+     * so the context may be null or may not include the dataset's settings. 
+     */
+    private static InferenceSetupRDFS setup(DatasetGraph dataset, Context context) {
+        if ( context != null && context.get(symSetup) instanceof InferenceSetupRDFS )
+            return (InferenceSetupRDFS)context.get(symSetup) ;
+        if ( dataset != null && dataset.getContext() != null && dataset.getContext().get(symSetup) instanceof InferenceSetupRDFS )
+            return (InferenceSetupRDFS)dataset.getContext().get(symSetup) ;
+        return null ;
+    }
+
+    private static boolean accept(DatasetGraph dataset, Context context) {
+        return setup(dataset, context) != null ;
+    }
+
+    private static final QueryEngineFactory factory = new QueryEngineFactory() {
+        @Override
+        public boolean accept(Query query, DatasetGraph dataset, Context context) {
+            return QueryEngineRDFS.accept(dataset, context) ;
+        }
+
+        @Override
+        public Plan create(Query query, DatasetGraph dataset, Binding inputBinding, Context context) {
+            QueryEngineRDFS engine = new QueryEngineRDFS(query, dataset, inputBinding, context) ;
+            return engine.getPlan() ;
+        }
+
+        @Override
+        public boolean accept(Op op, DatasetGraph dataset, Context context) {
+            return QueryEngineRDFS.accept(dataset, context) ;
+        }
+
+        @Override
+        public Plan create(Op op, DatasetGraph dataset, Binding inputBinding, Context context) {
+            QueryEngineRDFS engine = new QueryEngineRDFS(op, dataset, inputBinding, context) ;
+            return engine.getPlan() ;
+        }
+    } ;
+}
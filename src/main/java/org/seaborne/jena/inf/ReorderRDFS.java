@@ -0,0 +1,77 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import org.apache.jena.graph.GraphStatisticsHandler ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.optimizer.reorder.PatternElements ;
+import org.apache.jena.sparql.engine.optimizer.reorder.PatternTriple ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformationSubstitution ;
+import org.apache.jena.sparql.sse.Item ;
+
+/** BGP reordering by the estimates of a {@link GraphRDFSStatistics}, which include
+ * inferred triples. The pattern with the smallest estimate goes first.
+ * <p>
+ * A variable bound by an earlier pattern is estimated as ANY, then the estimate
+ * is divided by {@link #BoundTermFactor} for each such variable.
+ * Patterns without an estimate go after those with one, in their original order.
+ * 
+ * @see StageGeneratorRDFS
+ */
+public class ReorderRDFS extends ReorderTransformationSubstitution {
+    /** Selectivity of a term bound by an earlier pattern. */
+    public static final double BoundTermFactor = 10 ;
+    private static final double UnknownWeight = Double.MAX_VALUE ;
+
+    private final GraphStatisticsHandler stats ;
+
+    public ReorderRDFS(GraphStatisticsHandler stats) {
+        this.stats = stats ;
+    }
+
+    @Override
+    protected double weight(PatternTriple pt) {
+        long estimate = stats.getStatistic(node(pt.subject), node(pt.predicate), node(pt.object)) ;
+        if ( estimate < 0 )
+            return UnknownWeight ;
+        double weight = estimate ;
+        if ( isBound(pt.subject) )
+            weight = weight / BoundTermFactor ;
+        if ( isBound(pt.predicate) )
+            weight = weight / BoundTermFactor ;
+        if ( isBound(pt.object) )
+            weight = weight / BoundTermFactor ;
+        return weight ;
+    }
+
+    /** A variable bound by an earlier pattern: the substitution marks it as TERM. */
+    private static boolean isBound(Item item) {
+        return PatternElements.TERM.equals(item) ;
+    }
+
+    /** A constant, or ANY for a variable, bound or not. */
+    private static Node node(Item item) {
+        if ( ! item.isNode() )
+            return Node.ANY ;
+        Node n = item.getNode() ;
+        if ( Var.isVar(n) )
+            return Node.ANY ;
+        return n ;
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import static java.nio.charset.StandardCharsets.US_ASCII ;
+import static java.nio.charset.StandardCharsets.UTF_8 ;
+
+import java.io.* ;
+import java.nio.ByteBuffer ;
+import java.nio.IntBuffer ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.file.* ;
+import java.security.MessageDigest ;
+import java.security.NoSuchAlgorithmException ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+import java.util.function.Supplier ;
+import java.util.zip.CRC32 ;
+
+import org.apache.jena.datatypes.TypeMapper ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.shared.JenaException ;
+import org.apache.jena.sparql.graph.GraphFactory ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/** Binary snapshot of the computed tables of an {@link InferenceSetupRDFS},
+ * so a setup can be loaded without reading the vocabulary or computing the closures.
+ * <p>
+ * The snapshot records a hash of the vocabulary ({@link #vocabularyHash}); a snapshot
+ * with a different hash, format version or {@code includeDerivedDataRDFS} setting is stale
+ * and is not used.  
+ * <p>
+ * Format (all integers big-endian):
+ * <pre>
+ *   magic       8 bytes "RDFSSNAP"
+ *   version     int
+ *   flags       int      bit 0 : includeDerivedDataRDFS
+ *   hash        int length, bytes
+ *   terms       int count, then each term: tag byte ('U', 'B', 'L') and strings
+ *               (URI ; blank node label ; lexical form, language, datatype URI)
+ *   tables      int count, zero bytes to a multiple of 4, 
+ *               then each table: int keys, int[keys+1] offsets, int[offsets[keys]] values
+ *   checksum    long, CRC32 of all the bytes before it
+ * </pre>
+ * Strings are an int length and UTF-8 bytes. Table rows are in term id order, 
+ * each row sorted, in the order of {@code BaseInfSetupRDFS.tables()}.
+ * <p>
+ * A snapshot can be read into the heap ({@link #read}) or used in-place ({@link #map}),
+ * in which case the tables stay in the memory mapped file, outside the Java heap, and
+ * processes using the same file share one copy in the OS page cache.
+ * The vocabulary graph of a loaded setup is only made from the tables if it is asked for.
+ * Changes to a mapped setup are kept on the heap; the file is never written. 
+ */
+public class SnapshotRDFS {
+    private static Logger log = LoggerFactory.getLogger(SnapshotRDFS.class) ;
+
+    // Version 2: tables are 4-byte aligned.
+    public static final int VERSION = 2 ;
+
+    static final byte[] MAGIC = "RDFSSNAP".getBytes(US_ASCII) ;
+    static final int FLAG_DERIVED = 1 ;
+
+    private static final byte TAG_URI       = 'U' ;
+    private static final byte TAG_BNODE     = 'B' ;
+    private static final byte TAG_LITERAL   = 'L' ;
+
+    /** Get a setup for a vocabulary file: from the snapshot file if it is present
+     * and up-to-date, else by reading the vocabulary, in which case the snapshot
+     * file is (re)written. If the snapshot can't be written (e.g. a read-only
+     * directory), a warning is logged and the setup is returned anyway.
+     */
+    public static InferenceSetupRDFS load(Path vocabFile, Path snapshotFile, boolean incDerivedDataRDFS) {
+        return load(vocabFile, snapshotFile, incDerivedDataRDFS, false) ;
+    }
+
+    /** As {@link #load(Path, Path, boolean)}, with the choice of the tables being 
+     * memory mapped ({@link #map}) or read into the heap ({@link #read}).
+     */
+    public static InferenceSetupRDFS load(Path vocabFile, Path snapshotFile, boolean incDerivedDataRDFS, boolean mapped) {
+        byte[] hash = vocabularyHash(vocabFile) ;
+        try {
+            InferenceSetupRDFS setup = open(snapshotFile, hash, incDerivedDataRDFS, mapped) ;
+            if ( setup != null )
+                return setup ;
+        } catch (JenaException ex) {
+            log.warn("Bad snapshot file "+snapshotFile+": "+ex.getMessage()) ;
+        }
+        Graph vocab = RDFDataMgr.loadGraph(vocabFile.toString()) ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab, incDerivedDataRDFS) ;
+        try {
+            write(setup, hash, snapshotFile) ;
+        } catch (JenaException ex) {
+            log.warn("Snapshot not written: "+ex.getMessage()) ;
+            return setup ;
+        }
+        if ( mapped ) {
+            InferenceSetupRDFS setup2 = map(snapshotFile, hash, incDerivedDataRDFS) ;
+            if ( setup2 != null )
+                return setup2 ;
+        }
+        return setup ;
+    }
+
+    /** SHA-256 of the contents of the vocabulary files. */
+    public static byte[] vocabularyHash(Path... files) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256") ;
+            byte[] buffer = new byte[64*1024] ;
+            for ( Path file : files ) {
+                try ( InputStream in = Files.newInputStream(file) ) {
+                    int len ;
+                    while ( (len = in.read(buffer)) > 0 )
+                        digest.update(buffer, 0, len) ;
+                }
+            }
+            return digest.digest() ;
+        }
+        catch (NoSuchAlgorithmException ex) { throw new JenaException(ex) ; }
+        catch (IOException ex) { throw new JenaException("Failed to read vocabulary", ex) ; }
+    }
+
+    /** Write a snapshot. The file is written to a temporary file then moved into place. */
+    public static void write(InferenceSetupRDFS setup, byte[] vocabHash, Path file) {
+        byte[] bytes = encode(setup, vocabHash) ;
+        Path dir = file.toAbsolutePath().getParent() ;
+        try {
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp") ;
+            try {
+                Files.write(tmp, bytes) ;
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE) ;
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING) ;
+                }
+            } finally { Files.deleteIfExists(tmp) ; }
+        } catch (IOException ex) {
+            throw new JenaException("Failed to write snapshot: "+file, ex) ;
+        }
+    }
+
+    /** Read a snapshot into the heap. Returns null if there is no file or
+     * if it is stale (a different version, hash or {@code includeDerivedDataRDFS}).
+     * Throws {@link JenaException} if the file is not a snapshot or is damaged.
+     */
+    public static InferenceSetupRDFS read(Path file, byte[] vocabHash, boolean incDerivedDataRDFS) {
+        return open(file, vocabHash, incDerivedDataRDFS, false) ;
+    }
+
+    /** Use a snapshot with the tables left in the memory mapped file.
+     * The term dictionary is on the heap. 
+     * Returns null if there is no file or if it is stale, as {@link #read}.
+     * The file must not be changed while it is in use: {@link #write} replaces the file, 
+     * it does not change it.
+     */
+    public static InferenceSetupRDFS map(Path file, byte[] vocabHash, boolean incDerivedDataRDFS) {
+        return open(file, vocabHash, incDerivedDataRDFS, true) ;
+    }
+
+    private static InferenceSetupRDFS open(Path file, byte[] vocabHash, boolean incDerivedDataRDFS, boolean mapped) {
+        if ( ! Files.exists(file) )
+            return null ;
+        try ( FileChannel channel = FileChannel.open(file, StandardOpenOption.READ) ) {
+            // The mapping remains valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) ;
+            return decode(buffer, vocabHash, incDerivedDataRDFS, ! mapped) ;
+        } catch (IOException ex) {
+            throw new JenaException("Failed to read snapshot: "+file, ex) ;
+        }
+    }
+
+    // ---- Encode
+
+    static byte[] encode(InferenceSetupRDFS setup, byte[] vocabHash) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+        try ( DataOutputStream out = new DataOutputStream(bytes) ) {
+            out.write(MAGIC) ;
+            out.writeInt(VERSION) ;
+            out.writeInt(setup.includeDerivedDataRDFS() ? FLAG_DERIVED : 0) ;
+            out.writeInt(vocabHash.length) ;
+            out.write(vocabHash) ;
+            // Changes to the setup are synchronized on the setup.
+            synchronized(setup) {
+                TermDictionary<Node> dict = setup.dictionary() ;
+                int size = dict.size() ;
+                out.writeInt(size) ;
+                for ( int i = 0 ; i < size ; i++ )
+                    writeNode(out, dict.term(i)) ;
+                IntMultimap[] tables = setup.tables() ;
+                out.writeInt(tables.length) ;
+                while ( out.size() % 4 != 0 )
+                    out.writeByte(0) ;
+                for ( IntMultimap table : tables )
+                    writeTable(out, table, size) ;
+            }
+            out.flush() ;
+            CRC32 crc = new CRC32() ;
+            crc.update(bytes.toByteArray()) ;
+            out.writeLong(crc.getValue()) ;
+        } catch (IOException ex) {
+            throw new JenaException(ex) ;
+        }
+        return bytes.toByteArray() ;
+    }
+
+    private static void writeNode(DataOutputStream out, Node node) throws IOException {
+        if ( node.isURI() ) {
+            out.writeByte(TAG_URI) ;
+            writeString(out, node.getURI()) ;
+        } else if ( node.isBlank() ) {
+            out.writeByte(TAG_BNODE) ;
+            writeString(out, node.getBlankNodeLabel()) ;
+        } else if ( node.isLiteral() ) {
+            out.writeByte(TAG_LITERAL) ;
+            writeString(out, node.getLiteralLexicalForm()) ;
+            writeString(out, node.getLiteralLanguage()) ;
+            String dt = node.getLiteralDatatypeURI() ;
+            writeString(out, dt == null ? "" : dt) ;
+        } else
+            throw new JenaException("Can't write node: "+node) ;
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] b = str.getBytes(UTF_8) ;
+        out.writeInt(b.length) ;
+        out.write(b) ;
+    }
+
+    private static void writeTable(DataOutputStream out, IntMultimap table, int keys) throws IOException {
+        out.writeInt(keys) ;
+        int offset = 0 ;
+        out.writeInt(offset) ;
+        for ( int key = 0 ; key < keys ; key++ ) {
+            offset += table.get(key).length ;
+            out.writeInt(offset) ;
+        }
+        for ( int key = 0 ; key < keys ; key++ ) {
+            for ( int v : table.get(key) )
+                out.writeInt(v) ;
+        }
+    }
+
+    // ---- Decode
+
+    /** Check the header and checksum. Returns false if the snapshot is stale. */
+    static boolean checkHeader(ByteBuffer buffer, byte[] vocabHash, boolean incDerivedDataRDFS) {
+        int length = buffer.limit() ;
+        if ( length < MAGIC.length+8+8 )
+            throw new JenaException("Not a snapshot: too short") ;
+        byte[] magic = new byte[MAGIC.length] ;
+        buffer.position(0) ;
+        buffer.get(magic) ;
+        if ( ! Arrays.equals(MAGIC, magic) )
+            throw new JenaException("Not a snapshot: bad magic number") ;
+        int version = buffer.getInt() ;
+        if ( version != VERSION ) {
+            log.info("Snapshot version "+version+" : expected "+VERSION) ;
+            return false ;
+        }
+        ByteBuffer body = buffer.duplicate() ;
+        body.position(0).limit(length-8) ;
+        CRC32 crc = new CRC32() ;
+        crc.update(body) ;
+        if ( crc.getValue() != buffer.getLong(length-8) )
+            throw new JenaException("Snapshot checksum does not match") ;
+        int flags = buffer.getInt() ;
+        boolean derived = ( flags & FLAG_DERIVED ) != 0 ;
+        byte[] hash = new byte[buffer.getInt()] ;
+        buffer.get(hash) ;
+        if ( derived != incDerivedDataRDFS || ! Arrays.equals(hash, vocabHash) )
+            return false ;
+        return true ;
+    }
+
+    static List<Node> readTerms(ByteBuffer buffer) {
+        int size = buffer.getInt() ;
+        List<Node> terms = new ArrayList<>(size) ;
+        for ( int i = 0 ; i < size ; i++ )
+            terms.add(readNode(buffer)) ;
+        return terms ;
+    }
+
+    private static InferenceSetupRDFS decode(ByteBuffer buffer, byte[] vocabHash, boolean incDerivedDataRDFS, boolean copy) {
+        if ( ! checkHeader(buffer, vocabHash, incDerivedDataRDFS) )
+            return null ;
+        List<Node> terms = readTerms(buffer) ;
+        int n = buffer.getInt() ;
+        buffer.position((buffer.position()+3) & ~3) ;
+        IntBuffer[] offsets = new IntBuffer[n] ;
+        IntBuffer[] values = new IntBuffer[n] ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            int keys = buffer.getInt() ;
+            offsets[i] = readInts(buffer, keys+1, copy) ;
+            values[i] = readInts(buffer, offsets[i].get(keys), copy) ;
+        }
+        // Made only if asked for: a heap copy of the vocabulary in every process defeats mapping.
+        Supplier<Graph> vocab = () -> vocabGraph(terms, offsets, values) ;
+        return new InferenceSetupRDFS(vocab, incDerivedDataRDFS, terms, offsets, values) ;
+    }
+
+    private static Node readNode(ByteBuffer buffer) {
+        byte tag = buffer.get() ;
+        switch (tag) {
+            case TAG_URI :
+                return NodeFactory.createURI(readString(buffer)) ;
+            case TAG_BNODE :
+                return NodeFactory.createBlankNode(readString(buffer)) ;
+            case TAG_LITERAL : {
+                String lex = readString(buffer) ;
+                String lang = readString(buffer) ;
+                String dt = readString(buffer) ;
+                if ( ! lang.isEmpty() )
+                    return NodeFactory.createLiteral(lex, lang) ;
+                if ( dt.isEmpty() )
+                    return NodeFactory.createLiteral(lex) ;
+                return NodeFactory.createLiteral(lex, TypeMapper.getInstance().getSafeTypeByName(dt)) ;
+            }
+            default :
+                throw new JenaException("Bad term tag in snapshot: "+tag) ;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] b = new byte[buffer.getInt()] ;
+        buffer.get(b) ;
+        return new String(b, UTF_8) ;
+    }
+
+    /** The next n ints as an IntBuffer, either a copy on the heap or a view of the buffer. */
+    private static IntBuffer readInts(ByteBuffer buffer, int n, boolean copy) {
+        ByteBuffer b = buffer.slice() ;
+        b.limit(4*n) ;
+        IntBuffer ints = b.asIntBuffer() ;
+        buffer.position(buffer.position()+4*n) ;
+        if ( ! copy )
+            return ints ;
+        int[] x = new int[n] ;
+        ints.get(x) ;
+        return IntBuffer.wrap(x) ;
+    }
+
+    /** The RDFS triples of the vocabulary, from the direct and domain/range tables. */
+    private static Graph vocabGraph(List<Node> terms, IntBuffer[] offsets, IntBuffer[] values) {
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        addTriples(graph, terms, offsets, values, BaseInfSetupRDFS.TABLE_SUPER_CLASSES_DIRECT, InfGlobal.rdfsSubClassOf) ;
+        addTriples(graph, terms, offsets, values, BaseInfSetupRDFS.TABLE_SUPER_PROPERTIES_DIRECT, InfGlobal.rdfsSubPropertyOf) ;
+        addTriples(graph, terms, offsets, values, BaseInfSetupRDFS.TABLE_PROPERTY_RANGE, InfGlobal.rdfsRange) ;
+        addTriples(graph, terms, offsets, values, BaseInfSetupRDFS.TABLE_PROPERTY_DOMAIN, InfGlobal.rdfsDomain) ;
+        return graph ;
+    }
+
+    private static void addTriples(Graph graph, List<Node> terms, IntBuffer[] allOffsets, IntBuffer[] allValues, int table, Node property) {
+        IntBuffer offsets = allOffsets[table] ;
+        IntBuffer values = allValues[table] ;
+        int keys = offsets.limit()-1 ;
+        for ( int key = 0 ; key < keys ; key++ ) {
+            for ( int i = offsets.get(key) ; i < offsets.get(key+1) ; i++ )
+                graph.add(Triple.create(terms.get(key), property, terms.get(values.get(i)))) ;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import org.apache.jena.graph.GraphStatisticsHandler ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.iterator.QueryIterBlockTriples ;
+import org.apache.jena.sparql.engine.main.StageBuilder ;
+import org.apache.jena.sparql.engine.main.StageGenerator ;
+import org.apache.jena.sparql.util.Context ;
+
+/** Stage generator that executes BGPs over a {@link GraphRDFS} (any graph whose
+ * statistics handler is a {@link GraphRDFSStatistics}) in the order given by
+ * {@link ReorderRDFS}. Other graphs are passed to the previous stage generator.
+ * <p>
+ * ARQ's general stage generator uses a fixed reordering and does not ask the
+ * graph for statistics. 
+ * <p>
+ * This is not installed automatically: call {@link #register()} for all queries,
+ * or {@link #register(Context)} for the queries using a context (e.g. of a dataset
+ * or a {@code QueryExecution}). A stage generator set after this replaces it.
+ */
+public class StageGeneratorRDFS implements StageGenerator {
+
+    /** Use for all queries, wrapping the current global stage generator. */
+    public static void register() {
+        register(ARQ.getContext()) ;
+    }
+
+    /** Use for queries executed with this context, wrapping the stage generator
+     * that would otherwise be used. Does nothing if already registered.
+     */
+    public static void register(Context context) {
+        synchronized(context) {
+            Object current = context.get(ARQ.stageGenerator) ;
+            if ( current instanceof StageGeneratorRDFS )
+                return ;
+            StageGenerator other = (StageGenerator)current ;
+            if ( other == null && context != ARQ.getContext() )
+                other = (StageGenerator)ARQ.getContext().get(ARQ.stageGenerator) ;
+            if ( other == null )
+                other = StageBuilder.standardGenerator() ;
+            StageBuilder.setGenerator(context, new StageGeneratorRDFS(other)) ;
+        }
+    }
+
+    private final StageGenerator other ;
+
+    public StageGeneratorRDFS(StageGenerator other) {
+        this.other = other ;
+    }
+
+    @Override
+    public QueryIterator execute(BasicPattern pattern, QueryIterator input, ExecutionContext execCxt) {
+        GraphStatisticsHandler stats = execCxt.getActiveGraph().getStatisticsHandler() ;
+        if ( ! ( stats instanceof GraphRDFSStatistics ) || pattern.size() < 2 )
+            return other.execute(pattern, input, execCxt) ;
+        BasicPattern bgp = new ReorderRDFS(stats).reorder(pattern) ;
+        return QueryIterBlockTriples.create(input, bgp, execCxt) ;
+    }
+}
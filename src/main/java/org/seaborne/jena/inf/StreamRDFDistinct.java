@@ -0,0 +1,181 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFWrapper ;
+import org.apache.jena.sparql.core.Quad ;
+
+/** StreamRDF that removes repeated triples and quads, using a fixed amount of memory.
+ * <p>
+ * Use on the output of {@link InferenceProcessorStreamRDF}, which repeats
+ * derivations such as the {@code rdf:type} triples of a subject.
+ * <ul>
+ * <li>{@link #window}: exact for the most recently seen items (LRU).
+ *     Nothing is ever dropped that has not been seen; a repeat further away than
+ *     the window size is passed through again.
+ * <li>{@link #bloom}: a window of recent items in front of a Bloom filter over
+ *     everything seen. This removes far more repeats for the memory, but a
+ *     false positive drops an item that was not a repeat, at a rate of about
+ *     {@code fpp} once {@code expectedItems} items have been seen.
+ *     Use only where that loss is acceptable.
+ * </ul>
+ * Items are passed on or dropped; the order is not changed.
+ * Not thread safe - as for any StreamRDF.
+ */
+public class StreamRDFDistinct extends StreamRDFWrapper {
+
+    /** Record items; return true if the item is new (not seen before). */
+    public interface Seen {
+        public boolean add(Object item) ;
+    }
+
+    /** Exact, LRU window of the last {@code size} distinct triples and quads. */
+    public static StreamRDFDistinct window(StreamRDF output, int size) {
+        return new StreamRDFDistinct(output, new SeenWindow(size)) ;
+    }
+
+    /** Bloom filter sized for {@code expectedItems} at false positive probability {@code fpp},
+     * with an exact window of {@code recent} items checked first.
+     * May drop items that are not repeats: see the class comment. */
+    public static StreamRDFDistinct bloom(StreamRDF output, long expectedItems, double fpp, int recent) {
+        return new StreamRDFDistinct(output, new SeenBloom(expectedItems, fpp, recent)) ;
+    }
+
+    private final Seen seen ;
+    private long dropped = 0 ;
+
+    public StreamRDFDistinct(StreamRDF output, Seen seen) {
+        super(output) ;
+        this.seen = seen ;
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        if ( seen.add(triple) )
+            super.triple(triple) ;
+        else
+            dropped++ ;
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        if ( seen.add(quad) )
+            super.quad(quad) ;
+        else
+            dropped++ ;
+    }
+
+    /** Number of items not passed on. */
+    public long getDropped() {
+        return dropped ;
+    }
+
+    /** Exact LRU of the last "size" distinct items. */
+    static class SeenWindow implements Seen {
+        private final Map<Object, Boolean> window ;
+
+        SeenWindow(int size) {
+            if ( size < 1 )
+                throw new IllegalArgumentException("Window size must be at least 1: "+size) ;
+            // Access order: a hit moves the item to the most recent end.
+            this.window = new LinkedHashMap<Object, Boolean>(Math.min(size, 1<<16), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+                    return size() > size ;
+                }
+            } ;
+        }
+
+        @Override
+        public boolean add(Object item) {
+            return window.put(item, Boolean.TRUE) == null ;
+        }
+    }
+
+    /** Exact recent window, then a Bloom filter. */
+    static class SeenBloom implements Seen {
+        private final SeenWindow recent ;
+        private final long[] bits ;
+        private final long numBits ;
+        private final int numHashes ;
+
+        SeenBloom(long expectedItems, double fpp, int recent) {
+            if ( expectedItems < 1 )
+                throw new IllegalArgumentException("Expected items must be at least 1: "+expectedItems) ;
+            if ( ! ( fpp > 0 && fpp < 1 ) )
+                throw new IllegalArgumentException("False positive probability must be between 0 and 1: "+fpp) ;
+            this.recent = new SeenWindow(recent) ;
+            // Standard sizing: m = -n ln(p) / (ln 2)^2 ; k = m/n ln 2
+            long m = (long)Math.ceil(-expectedItems * Math.log(fpp) / (Math.log(2) * Math.log(2))) ;
+            m = Math.max(64, (m + 63) & ~63L) ;
+            this.bits = new long[Math.toIntExact(m >>> 6)] ;
+            this.numBits = m ;
+            this.numHashes = Math.max(1, (int)Math.round((double)m / expectedItems * Math.log(2))) ;
+        }
+
+        @Override
+        public boolean add(Object item) {
+            if ( ! recent.add(item) )
+                return false ;
+            // Double hashing: h1 + i*h2
+            long h1 ;
+            long h2 ;
+            if ( item instanceof Quad ) {
+                Quad quad = (Quad)item ;
+                h1 = hash(quad.getSubject(), quad.getPredicate()) ;
+                h2 = hash(quad.getObject(), quad.getGraph()) ;
+            } else {
+                Triple triple = (Triple)item ;
+                h1 = hash(triple.getSubject(), triple.getPredicate()) ;
+                h2 = hash(triple.getObject(), null) ;
+            }
+            h1 = mix(h1) ;
+            h2 = mix(h2 ^ h1) | 1 ;
+            boolean isNew = false ;
+            for ( int i = 0 ; i < numHashes ; i++ ) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, numBits) ;
+                int word = (int)(bit >>> 6) ;
+                long mask = 1L << bit ;
+                if ( ( bits[word] & mask ) == 0 ) {
+                    bits[word] |= mask ;
+                    isNew = true ;
+                }
+            }
+            return isNew ;
+        }
+
+        private static long hash(Node n1, Node n2) {
+            long x = n1.hashCode() ;
+            long y = ( n2 == null ) ? 0 : n2.hashCode() ;
+            return ( x << 32 ) ^ ( y & 0xFFFFFFFFL ) ;
+        }
+
+        // SplitMix64 finalizer.
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L ;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL ;
+            return z ^ (z >>> 31) ;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.Arrays ;
+import java.util.Map ;
+import java.util.concurrent.ConcurrentHashMap ;
+
+/** Dictionary from terms (in X space) to dense ints, starting at 0.
+ * Allocation is synchronized; lookups are not.
+ */
+class TermDictionary<X> {
+    private final Map<X, Integer> ids = new ConcurrentHashMap<>() ;
+    private volatile Object[] terms = new Object[16] ;
+    private int size = 0 ;
+
+    /** Get the id for a term, allocating one if necessary. */
+    synchronized int getAllocate(X term) {
+        Integer x = ids.get(term) ;
+        if ( x != null )
+            return x ;
+        int id = size ;
+        Object[] array = terms ;
+        if ( id == array.length )
+            array = Arrays.copyOf(array, 2*id) ;
+        array[id] = term ;
+        size++ ;
+        // Publish the term before the id.
+        terms = array ;
+        ids.put(term, id) ;
+        return id ;
+    }
+
+    /** Get the id for a term, or -1 if the term is not in the dictionary. */
+    int id(Object term) {
+        Integer x = ids.get(term) ;
+        return ( x == null ) ? -1 : x ;
+    }
+
+    @SuppressWarnings("unchecked")
+    X term(int id) {
+        return (X)terms[id] ;
+    }
+
+    synchronized int size() {
+        return size ;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import java.util.ArrayList ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.ARQConstants ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.Transform ;
+import org.apache.jena.sparql.algebra.TransformCopy ;
+import org.apache.jena.sparql.algebra.Transformer ;
+import org.apache.jena.sparql.algebra.op.* ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.core.VarAlloc ;
+import org.apache.jena.sparql.expr.E_IsLiteral ;
+import org.apache.jena.sparql.expr.E_LogicalNot ;
+import org.apache.jena.sparql.expr.ExprVar ;
+
+/** Rewrite basic graph patterns so that, run over the data only, they give the
+ * RDFS results. The rewritten query is executed by the storage engine's own
+ * BGP and join machinery.
+ * <ul>
+ * <li>{@code (s rdf:type C)}: the union of {@code (s rdf:type C')} for C and each subclass C',
+ *     {@code (s p ?v)} for each property with a domain of one of these classes
+ *     and {@code (?v p s)}, s not a literal, for each property with a range.
+ * <li>{@code (s P o)}: the union of {@code (s P' o)} for P and each subproperty P'.
+ * </ul>
+ * Each rewritten pattern is projected to its own variables and made distinct,
+ * so a triple that is inferred several ways is still one solution. 
+ * <p>
+ * Patterns with a variable predicate, or {@code rdf:type} with a variable class,
+ * are not rewritten: they match the data only. RDFS vocabulary triples
+ * ({@code includeDerivedDataRDFS}) are not added.
+ */
+public class TransformRDFS extends TransformCopy {
+
+    /** Rewrite all the BGPs in an algebra expression. */
+    public static Op rewrite(Op op, InferenceSetupRDFS setup) {
+        Transform transform = new TransformRDFS(setup) ;
+        return Transformer.transform(transform, op) ;
+    }
+
+    private final InferenceSetupRDFS setup ;
+    private final VarAlloc varAlloc = new VarAlloc(ARQConstants.allocVarMarker+"rdfs") ;
+
+    public TransformRDFS(InferenceSetupRDFS setup) {
+        this.setup = setup ;
+    }
+
+    @Override
+    public Op transform(OpBGP opBGP) {
+        List<Triple> triples = opBGP.getPattern().getList() ;
+        Op result = null ;
+        boolean changed = false ;
+        // Consecutive triple patterns that are not rewritten.
+        BasicPattern current = new BasicPattern() ;
+        for ( Triple triple : triples ) {
+            Op op = rewrite(triple) ;
+            if ( op == null ) {
+                current.add(triple) ;
+                continue ;
+            }
+            changed = true ;
+            if ( ! current.isEmpty() ) {
+                result = join(result, new OpBGP(current)) ;
+                current = new BasicPattern() ;
+            }
+            result = join(result, op) ;
+        }
+        if ( ! changed )
+            return super.transform(opBGP) ;
+        if ( ! current.isEmpty() )
+            result = join(result, new OpBGP(current)) ;
+        return result ;
+    }
+
+    private static Op join(Op left, Op right) {
+        if ( left == null )
+            return right ;
+        return OpJoin.create(left, right) ;
+    }
+
+    /** Rewrite one triple pattern or return null for no change. */
+    private Op rewrite(Triple triple) {
+        Node s = triple.getSubject() ;
+        Node p = triple.getPredicate() ;
+        Node o = triple.getObject() ;
+        if ( ! p.isConcrete() )
+            return null ;
+        List<Op> branches = new ArrayList<>() ;
+        if ( rdfType.equals(p) ) {
+            if ( ! o.isConcrete() )
+                return null ;
+            Set<Node> types = new LinkedHashSet<>() ;
+            types.add(o) ;
+            types.addAll(setup.getSubClasses(o)) ;
+            Set<Node> domainProperties = new LinkedHashSet<>() ;
+            Set<Node> rangeProperties = new LinkedHashSet<>() ;
+            for ( Node t : types ) {
+                branches.add(bgp(s, rdfType, t)) ;
+                domainProperties.addAll(setup.getPropertiesByDomain(t)) ;
+                rangeProperties.addAll(setup.getPropertiesByRange(t)) ;
+            }
+            for ( Node q : domainProperties )
+                branches.add(bgp(s, q, varAlloc.allocVar())) ;
+            if ( ! s.isLiteral() ) {
+                for ( Node q : rangeProperties ) {
+                    Op op = bgp(varAlloc.allocVar(), q, s) ;
+                    if ( Var.isVar(s) )
+                        op = OpFilter.filter(new E_LogicalNot(new E_IsLiteral(new ExprVar(s))), op) ;
+                    branches.add(op) ;
+                }
+            }
+        } else {
+            Set<Node> properties = setup.getSubProperties(p) ;
+            if ( properties.isEmpty() )
+                return null ;
+            branches.add(bgp(s, p, o)) ;
+            for ( Node p2 : properties )
+                branches.add(bgp(s, p2, o)) ;
+        }
+        if ( branches.size() == 1 )
+            return null ;
+        Op union = null ;
+        for ( Op op : branches )
+            union = ( union == null ) ? op : OpUnion.create(union, op) ;
+        // Only the variables of the original triple pattern.
+        List<Var> vars = new ArrayList<>() ;
+        for ( Node n : new Node[]{s, p, o} ) {
+            if ( Var.isVar(n) && ! vars.contains(n) )
+                vars.add(Var.alloc(n)) ;
+        }
+        return OpDistinct.create(new OpProject(union, vars)) ;
+    }
+
+    private static Op bgp(Node s, Node p, Node o) {
+        BasicPattern bp = new BasicPattern() ;
+        bp.add(Triple.create(s, p, o)) ;
+        return new OpBGP(bp) ;
+    }
+}
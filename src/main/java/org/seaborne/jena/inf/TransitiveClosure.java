@@ -0,0 +1,226 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.Arrays ;
+import java.util.stream.IntStream ;
+
+/** Transitive closure of a directed graph in int space, as used for
+ * rdfs:subClassOf and rdfs:subPropertyOf.
+ * <p>
+ * The closure is the same as the property path {@code ?x :p+ ?y}: a node is
+ * included in its own closure only if it is in a cycle (including a self-loop).
+ * <p>
+ * Strongly connected components are found first (all members of a cycle have
+ * the same closure), then the closure of each component is computed from
+ * its successors, in topological order of the condensed graph. Components at
+ * the same level do not depend on each other and are computed in parallel.
+ */
+class TransitiveClosure {
+
+    /**
+     * Compute the closure of the direct edges for nodes 0 to n-1.
+     * @param edges     Direct edges (compacted).
+     * @param n         Number of nodes: all keys and values are less than n.
+     * @param forward   Output: node to all nodes reachable from it.
+     * @param backward  Output: node to all nodes that can reach it.
+     */
+    static void closure(IntMultimap edges, int n, IntMultimap forward, IntMultimap backward) {
+        new TransitiveClosure(edges, n).exec(forward, backward) ;
+    }
+
+    private final IntMultimap edges ;
+    private final int n ;
+
+    // Component number for each node.
+    private final int[] comp ;
+    private int compCount = 0 ;
+
+    private TransitiveClosure(IntMultimap edges, int n) {
+        this.edges = edges ;
+        this.n = n ;
+        this.comp = new int[n] ;
+    }
+
+    private void exec(IntMultimap forward, IntMultimap backward) {
+        scc() ;
+
+        // Members of each component.
+        int[][] members = new int[compCount][] ;
+        int[] sizes = new int[compCount] ;
+        for ( int v = 0 ; v < n ; v++ )
+            sizes[comp[v]]++ ;
+        for ( int c = 0 ; c < compCount ; c++ )
+            members[c] = new int[sizes[c]] ;
+        Arrays.fill(sizes, 0) ;
+        for ( int v = 0 ; v < n ; v++ ) {
+            int c = comp[v] ;
+            members[c][sizes[c]++] = v ;
+        }
+
+        // Tarjan's algorithm numbers components in reverse topological order:
+        // successors of a component have lower numbers.
+        // Level: 0 for no successors, otherwise 1 + the maximum level of the successors.
+        int[] level = new int[compCount] ;
+        boolean[] cyclic = new boolean[compCount] ;
+        int maxLevel = 0 ;
+        for ( int c = 0 ; c < compCount ; c++ ) {
+            int lvl = 0 ;
+            cyclic[c] = members[c].length > 1 ;
+            for ( int v : members[c] ) {
+                for ( int w : edges.get(v) ) {
+                    int d = comp[w] ;
+                    if ( d == c ) {
+                        cyclic[c] = true ;
+                        continue ;
+                    }
+                    lvl = Math.max(lvl, level[d]+1) ;
+                }
+            }
+            level[c] = lvl ;
+            maxLevel = Math.max(maxLevel, lvl) ;
+        }
+
+        // Group components by level.
+        int[] levelSizes = new int[maxLevel+1] ;
+        for ( int c = 0 ; c < compCount ; c++ )
+            levelSizes[level[c]]++ ;
+        int[][] byLevel = new int[maxLevel+1][] ;
+        for ( int i = 0 ; i <= maxLevel ; i++ )
+            byLevel[i] = new int[levelSizes[i]] ;
+        Arrays.fill(levelSizes, 0) ;
+        for ( int c = 0 ; c < compCount ; c++ ) {
+            int lvl = level[c] ;
+            byLevel[lvl][levelSizes[lvl]++] = c ;
+        }
+
+        // Closure of each component, level by level.
+        int[][] reach = new int[compCount][] ;
+        for ( int lvl = 0 ; lvl <= maxLevel ; lvl++ ) {
+            IntStream stream = IntStream.of(byLevel[lvl]) ;
+            if ( byLevel[lvl].length > 1 )
+                stream = stream.parallel() ;
+            stream.forEach(c -> reach[c] = reach(c, members, reach, cyclic[c])) ;
+        }
+
+        for ( int v = 0 ; v < n ; v++ ) {
+            int[] row = reach[comp[v]] ;
+            if ( row.length == 0 )
+                continue ;
+            // Rows are shared by all members of a component.
+            forward.set(v, row) ;
+            for ( int w : row )
+                backward.add(w, v) ;
+        }
+        backward.compact() ;
+    }
+
+    private int[] reach(int c, int[][] members, int[][] reach, boolean cyclic) {
+        int[] buffer = new int[16] ;
+        int len = 0 ;
+        if ( cyclic ) {
+            buffer = append(buffer, len, members[c]) ;
+            len += members[c].length ;
+        }
+        for ( int v : members[c] ) {
+            for ( int w : edges.get(v) ) {
+                int d = comp[w] ;
+                if ( d == c )
+                    continue ;
+                buffer = append(buffer, len, members[d]) ;
+                len += members[d].length ;
+                buffer = append(buffer, len, reach[d]) ;
+                len += reach[d].length ;
+            }
+        }
+        if ( len == 0 )
+            return IntMultimap.EMPTY ;
+        return IntMultimap.sortedUnique(buffer, len) ;
+    }
+
+    private static int[] append(int[] buffer, int len, int[] values) {
+        if ( len + values.length > buffer.length )
+            buffer = Arrays.copyOf(buffer, Math.max(2*buffer.length, len+values.length)) ;
+        System.arraycopy(values, 0, buffer, len, values.length) ;
+        return buffer ;
+    }
+
+    /** Tarjan's strongly connected components algorithm, iteratively, so deep hierarchies
+     * do not overflow the stack.
+     */
+    private void scc() {
+        int[] index = new int[n] ;
+        int[] lowlink = new int[n] ;
+        boolean[] onStack = new boolean[n] ;
+        Arrays.fill(index, -1) ;
+        int[] stack = new int[n] ;
+        int sp = 0 ;
+        // Call stack: node and position in its edge list.
+        int[] callNode = new int[n] ;
+        int[] callEdge = new int[n] ;
+        int counter = 0 ;
+
+        for ( int root = 0 ; root < n ; root++ ) {
+            if ( index[root] >= 0 )
+                continue ;
+            int csp = 0 ;
+            callNode[csp] = root ;
+            callEdge[csp] = 0 ;
+            csp++ ;
+            index[root] = lowlink[root] = counter++ ;
+            stack[sp++] = root ;
+            onStack[root] = true ;
+
+            while ( csp > 0 ) {
+                int v = callNode[csp-1] ;
+                int[] succ = edges.get(v) ;
+                int i = callEdge[csp-1] ;
+                if ( i < succ.length ) {
+                    callEdge[csp-1] = i+1 ;
+                    int w = succ[i] ;
+                    if ( index[w] < 0 ) {
+                        index[w] = lowlink[w] = counter++ ;
+                        stack[sp++] = w ;
+                        onStack[w] = true ;
+                        callNode[csp] = w ;
+                        callEdge[csp] = 0 ;
+                        csp++ ;
+                    } else if ( onStack[w] ) {
+                        lowlink[v] = Math.min(lowlink[v], index[w]) ;
+                    }
+                    continue ;
+                }
+                // All successors done.
+                if ( lowlink[v] == index[v] ) {
+                    int w ;
+                    do {
+                        w = stack[--sp] ;
+                        onStack[w] = false ;
+                        comp[w] = compCount ;
+                    } while ( w != v ) ;
+                    compCount++ ;
+                }
+                csp-- ;
+                if ( csp > 0 ) {
+                    int u = callNode[csp-1] ;
+                    lowlink[u] = Math.min(lowlink[u], lowlink[v]) ;
+                }
+            }
+        }
+    }
+}
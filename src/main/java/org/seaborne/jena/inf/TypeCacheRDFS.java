@@ -0,0 +1,154 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.concurrent.ConcurrentHashMap ;
+import java.util.concurrent.atomic.AtomicLong ;
+import java.util.concurrent.atomic.LongAdder ;
+import java.util.function.Function ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.GraphListener ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+
+/** Cache of the inferred types of subjects, for {@link GraphRDFS}.
+ * <p>
+ * Entries are invalidated by a {@link GraphListener} on the base graph: a change
+ * to a triple invalidates its subject (rdf:type, domain) and its object (range).
+ * A bulk change clears the cache. Entries are also discarded when the T-Box
+ * changes (see {@link BaseInfSetupRDFS#getGeneration}).
+ * <p>
+ * The size is bounded; when full, some entries are evicted (in no particular order).
+ */
+public class TypeCacheRDFS {
+    private static class Entry {
+        final Set<Node> types ;
+        final long generation ;
+        Entry(Set<Node> types, long generation) {
+            this.types = types ;
+            this.generation = generation ;
+        }
+    }
+
+    private final InferenceSetupRDFS setup ;
+    private final int maxSize ;
+    private final Map<Node, Entry> cache = new ConcurrentHashMap<>() ;
+    // Incremented on every invalidation, before the entry is removed.
+    // A result computed while it changed is not cached.
+    private final AtomicLong epoch = new AtomicLong(0) ;
+    private final LongAdder hits = new LongAdder() ;
+    private final LongAdder misses = new LongAdder() ;
+    private final GraphListener listener = new Invalidate() ;
+
+    public TypeCacheRDFS(InferenceSetupRDFS setup, int maxSize) {
+        if ( maxSize < 1 )
+            throw new IllegalArgumentException("Cache size must be at least 1: "+maxSize) ;
+        this.setup = setup ;
+        this.maxSize = maxSize ;
+    }
+
+    /** Start watching a graph for changes. */
+    public void register(Graph graph) {
+        graph.getEventManager().register(listener) ;
+    }
+
+    /** Stop watching a graph for changes. */
+    public void unregister(Graph graph) {
+        graph.getEventManager().unregister(listener) ;
+    }
+
+    /** The types of the subject, using {@code compute} on a cache miss. */
+    public Set<Node> get(Node subject, Function<Node, Set<Node>> compute) {
+        long generation = setup.getGeneration() ;
+        Entry entry = cache.get(subject) ;
+        if ( entry != null && entry.generation == generation ) {
+            hits.increment() ;
+            return entry.types ;
+        }
+        misses.increment() ;
+        long e = epoch.get() ;
+        Set<Node> types = compute.apply(subject) ;
+        if ( epoch.get() == e && setup.getGeneration() == generation ) {
+            if ( cache.size() >= maxSize )
+                evict() ;
+            Entry newEntry = new Entry(types, generation) ;
+            cache.put(subject, newEntry) ;
+            // An invalidation between the check and the put may have removed
+            // nothing and left this, possibly stale, entry. 
+            if ( epoch.get() != e )
+                cache.remove(subject, newEntry) ;
+        }
+        return types ;
+    }
+
+    public void invalidate(Node node) {
+        epoch.incrementAndGet() ;
+        cache.remove(node) ;
+    }
+
+    public void clear() {
+        epoch.incrementAndGet() ;
+        cache.clear() ;
+    }
+
+    public long getHits() {
+        return hits.sum() ;
+    }
+
+    public long getMisses() {
+        return misses.sum() ;
+    }
+
+    public int size() {
+        return cache.size() ;
+    }
+
+    // Remove about an eighth of the entries.
+    private void evict() {
+        int target = maxSize - Math.max(1, maxSize/8) ;
+        Iterator<Node> iter = cache.keySet().iterator() ;
+        while ( cache.size() > target && iter.hasNext() ) {
+            iter.next() ;
+            iter.remove() ;
+        }
+    }
+
+    private void invalidate(Triple triple) {
+        invalidate(triple.getSubject()) ;
+        invalidate(triple.getObject()) ;
+    }
+
+    private class Invalidate implements GraphListener {
+        @Override public void notifyAddTriple(Graph g, Triple t)            { invalidate(t) ; }
+        @Override public void notifyAddArray(Graph g, Triple[] triples)     { clear() ; }
+        @Override public void notifyAddList(Graph g, List<Triple> triples)  { clear() ; }
+        @Override public void notifyAddIterator(Graph g, Iterator<Triple> it) { clear() ; }
+        @Override public void notifyAddGraph(Graph g, Graph added)          { clear() ; }
+        @Override public void notifyDeleteTriple(Graph g, Triple t)         { invalidate(t) ; }
+        @Override public void notifyDeleteList(Graph g, List<Triple> L)     { clear() ; }
+        @Override public void notifyDeleteArray(Graph g, Triple[] triples)  { clear() ; }
+        @Override public void notifyDeleteIterator(Graph g, Iterator<Triple> it) { clear() ; }
+        @Override public void notifyDeleteGraph(Graph g, Graph removed)     { clear() ; }
+        @Override public void notifyEvent(Graph source, Object value)       { clear() ; }
+    }
+}
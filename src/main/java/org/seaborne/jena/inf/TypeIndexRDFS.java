@@ -0,0 +1,216 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import java.util.* ;
+import java.util.concurrent.ConcurrentHashMap ;
+import java.util.stream.Stream ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.GraphEvents ;
+import org.apache.jena.graph.GraphListener ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+
+/** In-memory index of all the rdf:type triples of a graph, inferred and explicit,
+ * for the "hybrid" mode of {@link GraphRDFS}: types are materialized, everything
+ * else is inferred at query time.
+ * <p>
+ * The index (class to subjects, subject to classes) is built from the graph and
+ * kept up to date by a {@link GraphListener}. An added triple adds the types
+ * derived from it. A deleted triple causes the types of its subject and object
+ * to be recalculated from the graph, because other triples may still imply
+ * the same types. A bulk change, a remove by pattern or a T-Box change rebuilds the index.
+ * <p>
+ * Lookups do not lock; changes are made under the index lock. A rebuild makes
+ * new maps and replaces the old ones in one step, so lookups during a rebuild
+ * see the old index.
+ */
+public class TypeIndexRDFS {
+    private final InferenceSetupRDFS setup ;
+    private final Graph graph ;
+    private final InferenceEngineRDFS engine ;
+    private volatile Index index ;
+    private final GraphListener listener = new Maintain() ;
+    private volatile long generation ;
+
+    /** The maps, class to subjects and subject to classes, replaced together by a rebuild. */
+    private static class Index {
+        final Map<Node, Set<Node>> subjectToClasses = new ConcurrentHashMap<>() ;
+        final Map<Node, Set<Node>> classToSubjects  = new ConcurrentHashMap<>() ;
+    }
+
+    /** Build the index for a graph and start tracking changes to it. */
+    public TypeIndexRDFS(InferenceSetupRDFS setup, Graph graph) {
+        this.setup = setup ;
+        this.graph = graph ;
+        this.engine = new InferenceEngineRDFS(setup) ;
+        rebuild() ;
+        graph.getEventManager().register(listener) ;
+    }
+
+    /** Stop tracking changes. */
+    public void close() {
+        graph.getEventManager().unregister(listener) ;
+    }
+
+    public boolean contains(Node subject, Node type) {
+        Set<Node> x = current().subjectToClasses.get(subject) ;
+        return x != null && x.contains(type) ;
+    }
+
+    /** The types of a subject. */
+    public Set<Node> getTypes(Node subject) {
+        Set<Node> x = current().subjectToClasses.get(subject) ;
+        return ( x == null ) ? Collections.emptySet() : Collections.unmodifiableSet(x) ;
+    }
+
+    /** The instances of a class. */
+    public Set<Node> getInstances(Node type) {
+        Set<Node> x = current().classToSubjects.get(type) ;
+        return ( x == null ) ? Collections.emptySet() : Collections.unmodifiableSet(x) ;
+    }
+
+    /** All rdf:type triples. */
+    public Stream<Triple> all() {
+        return current().subjectToClasses.entrySet().stream().flatMap(e -> {
+            Node subject = e.getKey() ;
+            return e.getValue().stream().map(type -> Triple.create(subject, rdfType, type)) ;
+        }) ;
+    }
+
+    /** Rebuild from the graph. */
+    public synchronized void rebuild() {
+        long gen = setup.getGeneration() ;
+        Index x = new Index() ;
+        ExtendedIterator<Triple> iter = graph.find(Node.ANY, Node.ANY, Node.ANY) ;
+        try {
+            iter.forEachRemaining(triple -> addTypes(x, triple)) ;
+        } finally { iter.close() ; }
+        index = x ;
+        generation = gen ;
+    }
+
+    /** The index, rebuilt first if the T-Box has changed. */
+    private Index current() {
+        if ( generation != setup.getGeneration() ) {
+            synchronized(this) {
+                // Another thread may have rebuilt the index while this one waited.
+                if ( generation != setup.getGeneration() )
+                    rebuild() ;
+            }
+        }
+        return index ;
+    }
+
+    private synchronized void added(Triple triple) {
+        addTypes(index, triple) ;
+    }
+
+    private synchronized void deleted(Triple triple) {
+        recalculate(triple.getSubject()) ;
+        if ( ! triple.getObject().isLiteral() )
+            recalculate(triple.getObject()) ;
+    }
+
+    // The types implied by one triple.
+    private void addTypes(Index x, Triple triple) {
+        if ( rdfType.equals(triple.getPredicate()) )
+            index(x, triple.getSubject(), triple.getObject()) ;
+        engine.process(triple.getSubject(), triple.getPredicate(), triple.getObject(), (s, p, o) -> {
+            if ( rdfType.equals(p) )
+                index(x, s, o) ;
+        }) ;
+    }
+
+    private static void index(Index x, Node subject, Node type) {
+        x.subjectToClasses.computeIfAbsent(subject, k -> ConcurrentHashMap.newKeySet()).add(type) ;
+        x.classToSubjects.computeIfAbsent(type, k -> ConcurrentHashMap.newKeySet()).add(subject) ;
+    }
+
+    private static void unindex(Index x, Node subject, Node type) {
+        Set<Node> subjects = x.classToSubjects.get(type) ;
+        if ( subjects != null ) {
+            subjects.remove(subject) ;
+            if ( subjects.isEmpty() )
+                x.classToSubjects.remove(type) ;
+        }
+    }
+
+    /** Recalculate the types of a node from the triples it occurs in. */
+    private void recalculate(Node node) {
+        Set<Node> types = new HashSet<>() ;
+        BaseInfEngineRDFS.Output<Node> acc = (s, p, o) -> {
+            if ( rdfType.equals(p) && node.equals(s) )
+                types.add(o) ;
+        } ;
+        // Subject: rdf:type, domain. Object: range.
+        for ( Triple pattern : new Triple[]{ Triple.create(node, Node.ANY, Node.ANY), Triple.create(Node.ANY, Node.ANY, node) } ) {
+            ExtendedIterator<Triple> iter = graph.find(pattern) ;
+            try {
+                iter.forEachRemaining(triple -> {
+                    acc.derive(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+                    engine.process(triple.getSubject(), triple.getPredicate(), triple.getObject(), acc) ;
+                }) ;
+            } finally { iter.close() ; }
+        }
+        Index idx = index ;
+        Set<Node> old = idx.subjectToClasses.get(node) ;
+        if ( old != null ) {
+            for ( Node type : old ) {
+                if ( ! types.contains(type) )
+                    unindex(idx, node, type) ;
+            }
+        }
+        if ( types.isEmpty() ) {
+            idx.subjectToClasses.remove(node) ;
+            return ;
+        }
+        Set<Node> x = ConcurrentHashMap.newKeySet() ;
+        x.addAll(types) ;
+        idx.subjectToClasses.put(node, x) ;
+        for ( Node type : types )
+            idx.classToSubjects.computeIfAbsent(type, k -> ConcurrentHashMap.newKeySet()).add(node) ;
+    }
+
+    private class Maintain implements GraphListener {
+        @Override public void notifyAddTriple(Graph g, Triple t)            { added(t) ; }
+        @Override public void notifyAddArray(Graph g, Triple[] triples)     { for ( Triple t : triples ) added(t) ; }
+        @Override public void notifyAddList(Graph g, List<Triple> triples)  { triples.forEach(t -> added(t)) ; }
+        @Override public void notifyAddIterator(Graph g, Iterator<Triple> it) { rebuild() ; }
+        @Override public void notifyAddGraph(Graph g, Graph added)          { rebuild() ; }
+        @Override public void notifyDeleteTriple(Graph g, Triple t)         { deleted(t) ; }
+        @Override public void notifyDeleteList(Graph g, List<Triple> L)     { L.forEach(t -> deleted(t)) ; }
+        @Override public void notifyDeleteArray(Graph g, Triple[] triples)  { for ( Triple t : triples ) deleted(t) ; }
+        @Override public void notifyDeleteIterator(Graph g, Iterator<Triple> it) { rebuild() ; }
+        @Override public void notifyDeleteGraph(Graph g, Graph removed)     { rebuild() ; }
+        @Override public void notifyEvent(Graph source, Object value)       { if ( isRemove(value) ) rebuild() ; }
+    }
+
+    /** Events that change the graph without notifying each triple: removeAll and remove(s, p, o).
+     * Others, such as startRead and finishRead, do not change the graph.
+     */
+    private static boolean isRemove(Object value) {
+        if ( GraphEvents.removeAll.equals(value) )
+            return true ;
+        return ( value instanceof GraphEvents ) && "remove".equals(((GraphEvents)value).getTitle()) ;
+    }
+}
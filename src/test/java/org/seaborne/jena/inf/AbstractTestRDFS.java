@@ -132,6 +132,11 @@ public abstract class AbstractTestRDFS extends BaseTest {
         }
         
         Assert.assertTrue(getTestLabel(), InfTestLib.sameElts(x0, x1)) ;
+        // contains agrees with find.
+        Node s1 = ( s == null ) ? Node.ANY : s ;
+        Node p1 = ( p == null ) ? Node.ANY : p ;
+        Node o1 = ( o == null ) ? Node.ANY : o ;
+        Assert.assertEquals(getTestLabel()+" contains", ! x0.isEmpty(), getTestGraph().contains(s1, p1, o1)) ;
     }
 
     protected List<Triple> findInTestGraph(Node s, Node p, Node o) {
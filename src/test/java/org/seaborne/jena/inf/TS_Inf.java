@@ -22,9 +22,22 @@ import org.junit.runners.Suite ;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
-    TestGraphRDFS.class
+    TestInfSetupRDFS.class
+    , TestGraphRDFS.class
+    , TestGraphRDFS_Probe.class
+    , TestGraphRDFS_TypeCache.class
+    , TestGraphRDFS_Hybrid.class
+    , TestSnapshotRDFS.class
     , TestExpandRDFS.class
+    , TestExpandPipelineRDFS.class
+    , TestStreamRDFDistinct.class
     , TestCombinedRDFS.class
+    , TestMaterializeRDFS.class
+    , TestGraphRDFS_TDB.class
+    , TestDatasetGraphRDFS.class
+    , TestRewriteRDFS.class
+    , TestMetricsRDFS.class
+    , TestExplainRDFS.class
 })
 
 public class TS_Inf { }
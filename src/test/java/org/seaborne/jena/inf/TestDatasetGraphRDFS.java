@@ -0,0 +1,106 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import java.util.Iterator ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.core.GraphView ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb.TDBFactory ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Test of RDFS over a named graph of a TDB dataset, accessed through {@link DatasetGraphRDFS}. */
+public class TestDatasetGraphRDFS extends AbstractTestRDFS {
+    static Model vocab ;
+    static Model data ;
+
+    static InferenceSetupRDFS setup ;
+    // Jena graph to check results against.
+    static Graph infGraph ;
+    static DatasetGraph dsgRDFS ;
+    // The main test target
+    static Graph testGraph ;
+
+    static final String DIR = "testing/Inf" ;
+    static final String DATA_FILE = DIR+"/rdfs-data.ttl" ;
+    static final String VOCAB_FILE = DIR+"/rdfs-vocab.ttl" ;
+    static final String RULES_FILE = DIR+"/rdfs-min.rules" ;
+
+    static final Node graphName = NodeFactory.createURI("http://example/graph") ;
+
+    @BeforeClass public static void setupClass() {
+        vocab = RDFDataMgr.loadModel(VOCAB_FILE) ;
+        data = RDFDataMgr.loadModel(DATA_FILE) ;
+        infGraph = createRulesGraph(data, vocab, RULES_FILE) ;
+        setup = new InferenceSetupRDFS(vocab) ;
+
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        RDFDataMgr.read(dsg.getGraph(graphName), DATA_FILE) ;
+        dsgRDFS = new DatasetGraphRDFS(dsg, setup) ;
+        testGraph = GraphView.createNamedGraph(dsgRDFS, graphName) ;
+    }
+
+    @Test public void dataset_any_graph() {
+        DatasetGraph dsg = DatasetGraphFactory.create() ;
+        RDFDataMgr.read(dsg.getGraph(graphName), DATA_FILE) ;
+        DatasetGraph dsg2 = new DatasetGraphRDFS(dsg, setup) ;
+        Node a = node("a") ;
+        Node rdfType = InfGlobal.rdfType ;
+        // :a rdf:type :T, :T2, :T3, :U
+        assertEquals(4, count(dsg2.find(Node.ANY, a, rdfType, Node.ANY))) ;
+        assertEquals(4, count(dsg2.find(Quad.unionGraph, a, rdfType, Node.ANY))) ;
+        assertEquals(0, count(dsg2.find(Quad.defaultGraphIRI, a, rdfType, Node.ANY))) ;
+        assertTrue(dsg2.contains(Node.ANY, a, rdfType, node("U"))) ;
+        assertFalse(dsg2.contains(Quad.defaultGraphIRI, a, rdfType, node("U"))) ;
+    }
+
+    private static long count(Iterator<?> iter) {
+        long x = 0 ;
+        for ( ; iter.hasNext() ; iter.next() )
+            x++ ;
+        return x ;
+    }
+
+    @Override
+    protected Graph getReferenceGraph() {
+        return infGraph ;
+    }
+
+    @Override
+    protected Graph getTestGraph() {
+        return testGraph ;
+    }
+
+    @Override
+    protected String getReferenceLabel() {
+        return "Inference" ;
+    }
+
+    @Override
+    protected String getTestLabel() {
+        return "DatasetGraphRDFS" ;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFBase ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+import org.seaborne.jena.inf.InferenceSetupRDFS ;
+import org.apache.jena.graph.Factory ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.rdf.model.Model ;
+
+/** Test of RDFS, with separate data and vocabulary, no RDFS in the deductions, using worker threads. */
+public class TestExpandPipelineRDFS extends AbstractTestRDFS {
+    static Model vocab ;
+    static Model data ;
+
+    static InferenceSetupRDFS setup ;
+    // Jena graph to check results against.
+    static Graph infGraph ;
+    // The main test target
+    static Graph testGraphExpanded ;
+    
+    static final String DIR = "testing/Inf" ;
+    static final String DATA_FILE = DIR+"/rdfs-data.ttl" ;
+    static final String VOCAB_FILE = DIR+"/rdfs-vocab.ttl" ;
+    static final String RULES_FILE = DIR+"/rdfs-min.rules" ;
+    
+    @BeforeClass public static void setupClass() {
+        vocab = RDFDataMgr.loadModel(VOCAB_FILE) ;
+        data = RDFDataMgr.loadModel(DATA_FILE) ;
+        setup = new InferenceSetupRDFS(vocab) ;
+        
+        infGraph = createRulesGraph(data, vocab, RULES_FILE) ;
+
+        // Expansion Graph
+        testGraphExpanded = Factory.createDefaultGraph() ;
+        StreamRDF stream = StreamRDFLib.graph(testGraphExpanded) ;
+        stream = new InferenceProcessorStreamRDFPipeline(stream, setup, 2, 2, false) ;
+        RDFDataMgr.parse(stream, DATA_FILE) ;
+    }
+
+    @Override
+    protected Graph getReferenceGraph() {
+        return infGraph ;
+    }
+
+    @Override
+    protected Graph getTestGraph() {
+        return testGraphExpanded ;
+    }
+
+    @Override
+    protected String getReferenceLabel() {
+        return "Inference" ;
+    }
+
+    @Override
+    protected String getTestLabel() {
+        return "Expanded (pipeline)" ;
+    }
+
+    /** Output in the order sent. */
+    static class Collect extends StreamRDFBase {
+        final List<Triple> triples = new ArrayList<>() ;
+        @Override public void triple(Triple triple) { triples.add(triple) ; }
+    }
+
+    @Test public void pipeline_preserve_order() {
+        // Exactly the output of the single threaded processor, in the same order.
+        Collect expected = new Collect() ;
+        RDFDataMgr.parse(new InferenceProcessorStreamRDF(expected, setup), DATA_FILE) ;
+        Collect actual = new Collect() ;
+        RDFDataMgr.parse(new InferenceProcessorStreamRDFPipeline(actual, setup, 3, 2, true), DATA_FILE) ;
+        assertEquals(expected.triples, actual.triples) ;
+    }
+
+    @Test public void pipeline_prefix_order() {
+        for ( boolean preserveOrder : new boolean[]{true, false} ) {
+            List<Object> events = new ArrayList<>() ;
+            StreamRDF output = new StreamRDFBase() {
+                @Override public void triple(Triple triple)             { events.add(triple) ; }
+                @Override public void prefix(String prefix, String iri) { events.add(prefix) ; }
+                @Override public void base(String base)                 { events.add(base) ; }
+            } ;
+            StreamRDF stream = new InferenceProcessorStreamRDFPipeline(output, setup, 2, 10, preserveOrder) ;
+            Triple t1 = Triple.create(node("c"), node("p"), node("x")) ;
+            Triple t2 = Triple.create(node("a"), InfGlobal.rdfType, node("T")) ;
+            stream.start() ;
+            stream.triple(t1) ;
+            stream.prefix("ex", "http://example/") ;
+            stream.triple(t2) ;
+            stream.base("http://example/base") ;
+            stream.finish() ;
+            int idxPrefix = events.indexOf("ex") ;
+            int idxBase = events.indexOf("http://example/base") ;
+            // t1 and its derivations, the prefix, t2 and its derivations, the base.
+            assertTrue(idxPrefix > events.indexOf(t1)) ;
+            assertTrue(idxPrefix < events.indexOf(t2)) ;
+            assertEquals(events.size()-1, idxBase) ;
+            for ( int i = 0 ; i < idxPrefix ; i++ )
+                assertEquals(node("c"), ((Triple)events.get(i)).getSubject()) ;
+        }
+    }
+
+    @Test public void pipeline_close() {
+        Collect actual = new Collect() ;
+        InferenceProcessorStreamRDFPipeline stream = new InferenceProcessorStreamRDFPipeline(actual, setup, 2, 1, true) ;
+        stream.start() ;
+        data.getGraph().find(Node.ANY, Node.ANY, Node.ANY).forEachRemaining(stream::triple) ;
+        // Abandoned.
+        stream.close() ;
+        stream.close() ;
+        // Can be used again.
+        actual.triples.clear() ;
+        stream.start() ;
+        stream.finish() ;
+        assertTrue(actual.triples.isEmpty()) ;
+    }
+}
+
@@ -0,0 +1,139 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+import org.seaborne.jena.inf.ExplainRDFS.Op ;
+import org.seaborne.jena.inf.ExplainRDFS.Step ;
+import org.seaborne.jena.inf.MetricsRDFS.Branch ;
+
+public class TestExplainRDFS extends BaseTest {
+    static final String DIR = "testing/Inf" ;
+    static final String DATA_FILE = DIR+"/rdfs-data.ttl" ;
+    static final String VOCAB_FILE = DIR+"/rdfs-vocab.ttl" ;
+
+    static InferenceSetupRDFS setup ;
+    static Graph data ;
+
+    @BeforeClass public static void setupClass() {
+        setup = new InferenceSetupRDFS(RDFDataMgr.loadGraph(VOCAB_FILE)) ;
+        data = RDFDataMgr.loadGraph(DATA_FILE) ;
+    }
+
+    static Node node(String str) { return NodeFactory.createURI("http://example/"+str) ; }
+
+    @Test public void explain_subproperty() {
+        GraphRDFS graph = new GraphRDFS(setup, data) ;
+        ExplainRDFS explain = graph.explain(Node.ANY, node("p"), Node.ANY) ;
+        assertEquals(Branch.subproperty, explain.getBranch()) ;
+        // :p, :pp, :ppp
+        assertEquals(3, count(explain, Op.SCAN)) ;
+        assertTrue(hasScan(explain, Node.ANY, node("ppp"), Node.ANY)) ;
+        assertFalse(explain.isDistinct()) ;
+        assertFalse(explain.isMaterialized()) ;
+        assertFalse(explain.isAnalyzed()) ;
+        assertEquals(-1, explain.getSteps().get(0).getCalls()) ;
+    }
+
+    @Test public void explain_X_type_ANY() {
+        GraphRDFS graph = new GraphRDFS(setup, data) ;
+        ExplainRDFS explain = graph.explain(node("a"), rdfType, null) ;
+        assertEquals(Branch.X_type_ANY, explain.getBranch()) ;
+        assertTrue(hasScan(explain, node("a"), rdfType, Node.ANY)) ;
+        assertTrue(explain.isMaterialized()) ;
+    }
+
+    @Test public void explain_ANY_type_T() {
+        GraphRDFS graph = new GraphRDFS(setup, data) ;
+        ExplainRDFS explain = graph.explain(Node.ANY, rdfType, node("T")) ;
+        assertEquals(Branch.ANY_type_T, explain.getBranch()) ;
+        // :T, :S1, :S2, :R
+        assertEquals(4, count(explain, Op.SCAN)) ;
+        assertTrue(hasScan(explain, Node.ANY, rdfType, node("R"))) ;
+        assertTrue(explain.isDistinct()) ;
+        assertFalse(explain.isMaterialized()) ;
+    }
+
+    @Test public void explain_hybrid() {
+        GraphRDFS graph = GraphRDFS.createHybrid(setup, data) ;
+        ExplainRDFS explain = graph.explain(node("a"), rdfType, node("U")) ;
+        assertEquals(1, explain.getSteps().size()) ;
+        assertEquals(Op.INDEX, explain.getSteps().get(0).getOp()) ;
+    }
+
+    @Test public void analyze_ANY_type_T() {
+        GraphRDFS graph = new GraphRDFS(setup, data) ;
+        ExplainRDFS explain = graph.explain(Node.ANY, rdfType, node("T"), true) ;
+        assertTrue(explain.isAnalyzed()) ;
+        // :a
+        assertEquals(1, explain.getReturned()) ;
+        long rows = 0 ;
+        for ( Step step : explain.getSteps() ) {
+            // Not the runtime probes for earlier scans, (?s rdf:type ANY).
+            Triple t = step.getPattern() ;
+            if ( step.getOp() == Op.SCAN && Node.ANY.equals(t.getSubject()) && rdfType.equals(t.getPredicate()) ) {
+                assertEquals(1, step.getCalls()) ;
+                rows += step.getRows() ;
+            }
+        }
+        assertEquals(1, rows) ;
+    }
+
+    @Test public void analyze_X_type_T() {
+        GraphRDFS graph = new GraphRDFS(setup, data) ;
+        // By domain of :p.
+        ExplainRDFS explain = graph.explain(node("c"), rdfType, node("Q2"), true) ;
+        assertEquals(1, explain.getReturned()) ;
+        Step step = explain.getSteps().get(0) ;
+        assertEquals(Op.PROBE, step.getOp()) ;
+        assertEquals(1, step.getCalls()) ;
+        assertEquals(0, step.getRows()) ;
+    }
+
+    @Test public void analyze_returned() {
+        GraphRDFS graph = new GraphRDFS(setup, data) ;
+        Node[][] patterns = {
+            { Node.ANY, Node.ANY, node("U") },
+            { node("c"), Node.ANY, Node.ANY },
+            { Node.ANY, Node.ANY, Node.ANY },
+            { Node.ANY, node("pTop"), Node.ANY },
+        } ;
+        for ( Node[] x : patterns ) {
+            ExplainRDFS explain = graph.explain(x[0], x[1], x[2], true) ;
+            assertEquals(explain.toString(), graph.find(x[0], x[1], x[2]).toList().size(), explain.getReturned()) ;
+        }
+    }
+
+    private static long count(ExplainRDFS explain, Op op) {
+        return explain.getSteps().stream().filter(step -> step.getOp() == op).count() ;
+    }
+
+    private static boolean hasScan(ExplainRDFS explain, Node s, Node p, Node o) {
+        Triple t = Triple.create(s, p, o) ;
+        return explain.getSteps().stream().anyMatch(step -> step.getOp() == Op.SCAN && t.equals(step.getPattern())) ;
+    }
+}
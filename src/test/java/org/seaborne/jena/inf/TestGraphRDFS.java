@@ -17,7 +17,24 @@
 
 package org.seaborne.jena.inf;
 
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import org.apache.jena.graph.Factory ;
 import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.GraphUtil ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.QueryExecution ;
+import org.apache.jena.query.QueryExecutionFactory ;
+import org.apache.jena.query.ResultSetFormatter ;
+import org.apache.jena.rdf.model.ModelFactory ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.graph.GraphWrapper ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.apache.jena.util.iterator.WrappedIterator ;
+import org.junit.Test ;
 import org.seaborne.jena.inf.GraphRDFS ;
 import org.seaborne.jena.inf.InferenceSetupRDFS ;
 
@@ -27,5 +44,93 @@ public class TestGraphRDFS extends AbstractTestGraphRDFS {
     protected Graph createGraphRDFS(InferenceSetupRDFS setup, Graph data) {
         return new GraphRDFS(setup, data) ;
     }
-}
 
+    /** Counts the iterators from find that have not been closed. */ 
+    static class GraphCountOpen extends GraphWrapper {
+        int open = 0 ;
+
+        GraphCountOpen(Graph graph) { super(graph) ; }
+
+        @Override
+        public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+            open++ ;
+            return new WrappedIterator<Triple>(super.find(s, p, o), true) {
+                private boolean closed = false ;
+                @Override
+                public void close() {
+                    if ( ! closed )
+                        open-- ;
+                    closed = true ;
+                    super.close() ;
+                }
+            } ;
+        }
+    }
+
+    // Early close (e.g. LIMIT) closes all the scans.
+    @Test public void find_close() {
+        GraphCountOpen base = new GraphCountOpen(data.getGraph()) ;
+        Graph graph = new GraphRDFS(setup, base) ;
+        Node[][] patterns = {
+            { Node.ANY, rdfType, node("U") },
+            { Node.ANY, rdfType, Node.ANY },
+            { node("c"), Node.ANY, Node.ANY },
+            { Node.ANY, Node.ANY, node("T") },
+            { Node.ANY, Node.ANY, Node.ANY },
+            { Node.ANY, node("pTop"), Node.ANY },
+        } ;
+        for ( Node[] pattern : patterns ) {
+            ExtendedIterator<Triple> iter = graph.find(pattern[0], pattern[1], pattern[2]) ;
+            assertTrue(iter.hasNext()) ;
+            iter.next() ;
+            iter.close() ;
+            assertEquals(0, base.open) ;
+        }
+    }
+
+    // Estimates for a given class or property are upper bounds of the inferred counts.
+    @Test public void statistics() {
+        Graph graph = new GraphRDFS(setup, data.getGraph()) ;
+        Node[][] patterns = {
+            { Node.ANY, rdfType, node("U") },
+            { Node.ANY, rdfType, node("Q2") },
+            { Node.ANY, node("pTop"), Node.ANY },
+        } ;
+        for ( Node[] pattern : patterns ) {
+            long count = graph.find(pattern[0], pattern[1], pattern[2]).toList().size() ;
+            long estimate = graph.getStatisticsHandler().getStatistic(pattern[0], pattern[1], pattern[2]) ;
+            assertTrue("Estimate "+estimate+" < "+count, estimate >= count) ;
+        }
+    }
+
+    // ARQ orders BGPs over a GraphRDFS by its estimates.
+    @Test public void statistics_reorder() {
+        Graph base = Factory.createDefaultGraph() ;
+        GraphUtil.addInto(base, data.getGraph()) ;
+        // Many instances of :Q1, so of :Q2 by inference; one :p triple.
+        for ( int i = 0 ; i < 20 ; i++ )
+            base.add(Triple.create(node("i"+i), rdfType, node("Q1"))) ;
+        Object global = ARQ.getContext().get(ARQ.stageGenerator) ;
+        Graph graph = new GraphRDFS(setup, base) ;
+        // No change to global query engine state.
+        assertSame(global, ARQ.getContext().get(ARQ.stageGenerator)) ;
+
+        Var x = Var.alloc("x") ;
+        Var y = Var.alloc("y") ;
+        BasicPattern bgp = new BasicPattern() ;
+        bgp.add(Triple.create(x, rdfType, node("Q2"))) ;
+        bgp.add(Triple.create(x, node("pTop"), y)) ;
+        BasicPattern bgp2 = new ReorderRDFS(graph.getStatisticsHandler()).reorder(bgp) ;
+        assertEquals(node("pTop"), bgp2.get(0).getPredicate()) ;
+        assertEquals(rdfType, bgp2.get(1).getPredicate()) ;
+
+        String qs = "SELECT * { ?x a <http://example/Q2> . ?x <http://example/pTop> ?y }" ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs, ModelFactory.createModelForGraph(graph)) ) {
+            // For this query only.
+            StageGeneratorRDFS.register(qExec.getContext()) ;
+            assertTrue(qExec.getContext().get(ARQ.stageGenerator) instanceof StageGeneratorRDFS) ;
+            // :c
+            assertEquals(1, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+    }
+}
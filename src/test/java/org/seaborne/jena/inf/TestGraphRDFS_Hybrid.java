@@ -0,0 +1,75 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import org.apache.jena.graph.Factory ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.junit.Test ;
+
+/** {@link GraphRDFS} in hybrid mode: rdf:type from an index. */
+public class TestGraphRDFS_Hybrid extends AbstractTestGraphRDFS {
+
+    @Override
+    protected Graph createGraphRDFS(InferenceSetupRDFS setup, Graph data) {
+        return GraphRDFS.createHybrid(setup, data) ;
+    }
+
+    @Override
+    protected String getTestLabel() {
+        return "GraphRDFS (hybrid)" ;
+    }
+
+    @Test public void type_index_update() {
+        Graph base = Factory.createDefaultGraph() ;
+        GraphRDFS graph = GraphRDFS.createHybrid(setup, base) ;
+        Triple t1 = Triple.create(node("x"), rdfType, node("T")) ;
+        Triple t2 = Triple.create(node("x"), rdfType, node("S1")) ;
+        base.add(t1) ;
+        base.add(t2) ;
+        // T, T2, T3, U, S1
+        assertEquals(5, graph.find(node("x"), rdfType, Node.ANY).toList().size()) ;
+        assertEquals(1, graph.find(Node.ANY, rdfType, node("S1")).toList().size()) ;
+        base.delete(t2) ;
+        assertEquals(4, graph.find(node("x"), rdfType, Node.ANY).toList().size()) ;
+        assertEquals(0, graph.find(Node.ANY, rdfType, node("S1")).toList().size()) ;
+        // Still implied by the other triple.
+        assertEquals(1, graph.find(Node.ANY, rdfType, node("U")).toList().size()) ;
+        base.delete(t1) ;
+        assertEquals(0, graph.find(node("x"), rdfType, Node.ANY).toList().size()) ;
+        graph.close() ;
+    }
+
+    @Test public void type_index_remove() {
+        Graph base = Factory.createDefaultGraph() ;
+        GraphRDFS graph = GraphRDFS.createHybrid(setup, base) ;
+        base.add(Triple.create(node("x"), rdfType, node("T"))) ;
+        base.add(Triple.create(node("y"), rdfType, node("S1"))) ;
+        assertEquals(2, graph.find(Node.ANY, rdfType, node("T")).toList().size()) ;
+        // Remove by pattern.
+        base.remove(node("y"), Node.ANY, Node.ANY) ;
+        assertEquals(1, graph.find(Node.ANY, rdfType, node("T")).toList().size()) ;
+        // Remove all.
+        base.clear() ;
+        assertEquals(0, graph.find(Node.ANY, rdfType, node("T")).toList().size()) ;
+        graph.close() ;
+    }
+}
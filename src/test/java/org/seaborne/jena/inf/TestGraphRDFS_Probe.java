@@ -0,0 +1,35 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.GraphStatisticsHandler ;
+import org.apache.jena.sparql.graph.GraphWrapper ;
+
+/** {@link GraphRDFS} over a graph with no statistics, so probes are used for few predicates. */
+public class TestGraphRDFS_Probe extends AbstractTestGraphRDFS {
+
+    @Override
+    protected Graph createGraphRDFS(InferenceSetupRDFS setup, Graph data) {
+        Graph noStats = new GraphWrapper(data) {
+            @Override
+            public GraphStatisticsHandler getStatisticsHandler() { return null ; }
+        } ;
+        return new GraphRDFS(setup, noStats) ;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import java.util.List ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.tdb.TDBFactory ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.sys.TDBInternal ;
+import org.apache.jena.tdb.transaction.DatasetGraphTransaction ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Test of RDFS in NodeId space over TDB, with separate data and vocabulary, no RDFS in the deductions. */
+public class TestGraphRDFS_TDB extends AbstractTestRDFS {
+    static Model vocab ;
+    static Model data ;
+
+    static InferenceSetupRDFS_TDB setup ;
+    // Jena graph to check results against.
+    static Graph infGraph ;
+    // The main test target
+    static Graph testGraphTDB ;
+
+    static final String DIR = "testing/Inf" ;
+    static final String DATA_FILE = DIR+"/rdfs-data.ttl" ;
+    static final String VOCAB_FILE = DIR+"/rdfs-vocab.ttl" ;
+    static final String RULES_FILE = DIR+"/rdfs-min.rules" ;
+
+    @BeforeClass public static void setupClass() {
+        vocab = RDFDataMgr.loadModel(VOCAB_FILE) ;
+        data = RDFDataMgr.loadModel(DATA_FILE) ;
+        infGraph = createRulesGraph(data, vocab, RULES_FILE) ;
+
+        DatasetGraphTDB dsg = ((DatasetGraphTransaction)TDBFactory.createDatasetGraph()).get() ;
+        RDFDataMgr.read(dsg.getDefaultGraph(), DATA_FILE) ;
+        setup = new InferenceSetupRDFS_TDB(vocab, dsg) ;
+        testGraphTDB = new GraphRDFS_TDB(setup) ;
+    }
+
+    @Test public void tdb_transaction() {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        dsg.begin(ReadWrite.WRITE) ;
+        RDFDataMgr.read(dsg.getDefaultGraph(), DATA_FILE) ;
+        dsg.commit() ;
+        dsg.end() ;
+
+        GraphRDFS_TDB graph = (GraphRDFS_TDB)InfFactory.graphRDFS_TDB(dsg, vocab.getGraph()) ;
+        Node rdfType = InfGlobal.rdfType ;
+        Node a = node("a") ;
+        Node x = node("x1") ;
+        Node U = node("U") ;
+
+        dsg.begin(ReadWrite.READ) ;
+        try {
+            assertTrue(graph.contains(a, rdfType, U)) ;
+            // :U is only in the vocabulary and is not added to the node table.
+            NodeTable nodeTable = TDBInternal.getDatasetGraphTDB(dsg).getTripleTable().getNodeTupleTable().getNodeTable() ;
+            assertTrue(NodeId.isDoesNotExist(nodeTable.getNodeIdForNode(U))) ;
+        } finally { dsg.end() ; }
+
+        dsg.begin(ReadWrite.WRITE) ;
+        dsg.getDefaultGraph().add(Triple.create(x, rdfType, U)) ;
+        dsg.commit() ;
+        dsg.end() ;
+
+        // The first find after the change starts a rebuild of the setup.
+        dsg.begin(ReadWrite.READ) ;
+        try {
+            graph.find(Node.ANY, rdfType, U).toList() ;
+        } finally { dsg.end() ; }
+        graph.awaitRefresh() ;
+
+        dsg.begin(ReadWrite.READ) ;
+        try {
+            assertEquals(2, graph.find(Node.ANY, rdfType, U).toList().size()) ;
+        } finally { dsg.end() ; }
+    }
+
+    // The range rule skips literal objects: non-inline ones are decoded once, then remembered.
+    @Test public void tdb_range_literal() {
+        DatasetGraphTDB dsg = ((DatasetGraphTransaction)TDBFactory.createDatasetGraph()).get() ;
+        Node lit = NodeFactory.createLiteral("A literal that is not inlined as a NodeId") ;
+        dsg.getDefaultGraph().add(Triple.create(node("d"), node("q"), lit)) ;
+        dsg.getDefaultGraph().add(Triple.create(node("d"), node("q"), node("z"))) ;
+        Graph graph = new GraphRDFS_TDB(new InferenceSetupRDFS_TDB(vocab, dsg)) ;
+        for ( int i = 0 ; i < 2 ; i++ ) {
+            // By the engine.
+            List<Triple> types = graph.find(Node.ANY, InfGlobal.rdfType, Node.ANY).toList() ;
+            assertTrue(types.contains(Triple.create(node("z"), InfGlobal.rdfType, node("P")))) ;
+            assertFalse(types.contains(Triple.create(lit, InfGlobal.rdfType, node("P")))) ;
+            // By the range scans.
+            assertEquals(1, graph.find(Node.ANY, InfGlobal.rdfType, node("P")).toList().size()) ;
+        }
+    }
+
+    @Override
+    protected Graph getReferenceGraph() {
+        return infGraph ;
+    }
+
+    @Override
+    protected Graph getTestGraph() {
+        return testGraphTDB ;
+    }
+
+    @Override
+    protected String getReferenceLabel() {
+        return "Inference" ;
+    }
+
+    @Override
+    protected String getTestLabel() {
+        return "GraphRDFS_TDB" ;
+    }
+}
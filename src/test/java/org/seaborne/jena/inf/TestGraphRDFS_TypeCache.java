@@ -0,0 +1,60 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import org.apache.jena.graph.Factory ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.junit.Test ;
+
+/** {@link GraphRDFS} with a type cache. */
+public class TestGraphRDFS_TypeCache extends AbstractTestGraphRDFS {
+
+    @Override
+    protected Graph createGraphRDFS(InferenceSetupRDFS setup, Graph data) {
+        return new GraphRDFS(setup, data, 100) ;
+    }
+
+    @Override
+    protected String getTestLabel() {
+        return "GraphRDFS (type cache)" ;
+    }
+
+    @Test public void type_cache_invalidate() {
+        Node x = NodeFactory.createURI("http://example/x") ;
+        Node t = NodeFactory.createURI("http://example/T") ;
+        Graph base = Factory.createDefaultGraph() ;
+        GraphRDFS graph = new GraphRDFS(setup, base, 100) ;
+        assertFalse(hasType(graph, x, t)) ;
+        assertFalse(hasType(graph, x, t)) ;
+        assertEquals(1, graph.getTypeCache().getMisses()) ;
+        assertEquals(1, graph.getTypeCache().getHits()) ;
+        base.add(Triple.create(x, rdfType, t)) ;
+        assertTrue(hasType(graph, x, t)) ;
+        assertEquals(2, graph.getTypeCache().getMisses()) ;
+        graph.close() ;
+    }
+
+    private static boolean hasType(Graph graph, Node x, Node t) {
+        return ! graph.find(x, rdfType, t).toList().isEmpty() ;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsDomain ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsSubClassOf ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsSubPropertyOf ;
+
+import java.util.Arrays ;
+import java.util.HashSet ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.* ;
+import org.junit.Test ;
+
+/** Tests of the closure tables of an {@link InferenceSetupRDFS}. */
+public class TestInfSetupRDFS extends BaseTest {
+    static Node node(String str) { return NodeFactory.createURI("http://example/"+str) ; }
+
+    static Set<Node> nodes(String... names) {
+        Set<Node> x = new HashSet<>() ;
+        Arrays.stream(names).forEach(n -> x.add(node(n))) ;
+        return x ;
+    }
+
+    static void add(Graph graph, String s, Node p, String o) {
+        graph.add(Triple.create(node(s), p, node(o))) ;
+    }
+
+    @Test public void closure_chain() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "A", rdfsSubClassOf, "B") ;
+        add(vocab, "B", rdfsSubClassOf, "C") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        assertEquals(nodes("B", "C"), setup.getSuperClasses(node("A"))) ;
+        assertEquals(nodes("A", "B", "C"), setup.getSuperClassesInc(node("A"))) ;
+        assertEquals(nodes("A", "B"), setup.getSubClasses(node("C"))) ;
+        assertEquals(nodes(), setup.getSuperClasses(node("C"))) ;
+        assertEquals(nodes(), setup.getSuperClassesInc(node("C"))) ;
+        assertEquals(nodes(), setup.getSuperClasses(node("Z"))) ;
+    }
+
+    @Test public void closure_diamond() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "A", rdfsSubClassOf, "B1") ;
+        add(vocab, "A", rdfsSubClassOf, "B2") ;
+        add(vocab, "B1", rdfsSubClassOf, "C") ;
+        add(vocab, "B2", rdfsSubClassOf, "C") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        assertEquals(nodes("B1", "B2", "C"), setup.getSuperClasses(node("A"))) ;
+        assertEquals(nodes("A", "B1", "B2"), setup.getSubClasses(node("C"))) ;
+        assertEquals(nodes("A", "B1", "B2", "C"), setup.getSubClassesInc(node("C"))) ;
+    }
+
+    @Test public void closure_cycle() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "A", rdfsSubClassOf, "B") ;
+        add(vocab, "B", rdfsSubClassOf, "A") ;
+        add(vocab, "B", rdfsSubClassOf, "C") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        // In a cycle : includes itself.
+        assertEquals(nodes("A", "B", "C"), setup.getSuperClasses(node("A"))) ;
+        assertEquals(nodes("A", "B", "C"), setup.getSuperClasses(node("B"))) ;
+        assertEquals(nodes("A", "B"), setup.getSubClasses(node("C"))) ;
+    }
+
+    @Test public void closure_self() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "p", rdfsSubPropertyOf, "p") ;
+        add(vocab, "q", rdfsSubPropertyOf, "p") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        assertEquals(nodes("p"), setup.getSuperProperties(node("p"))) ;
+        assertEquals(nodes("p"), setup.getSuperProperties(node("q"))) ;
+        assertEquals(nodes("p", "q"), setup.getSubProperties(node("p"))) ;
+    }
+
+    @Test public void update_add_subclass() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "A", rdfsSubClassOf, "B") ;
+        add(vocab, "C", rdfsSubClassOf, "D") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        long gen = setup.getGeneration() ;
+        Set<Node> changed = setup.addSubClassOf(node("B"), node("C")) ;
+        assertEquals(nodes("A", "B", "C", "D"), changed) ;
+        assertNotEquals(gen, setup.getGeneration()) ;
+        add(vocab, "B", rdfsSubClassOf, "C") ;
+        sameAs(setup, new InferenceSetupRDFS(vocab), "A", "B", "C", "D") ;
+        // No change
+        assertTrue(setup.addSubClassOf(node("A"), node("C")).isEmpty()) ;
+    }
+
+    @Test public void update_remove_subclass() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "A", rdfsSubClassOf, "B") ;
+        add(vocab, "B", rdfsSubClassOf, "C") ;
+        add(vocab, "A", rdfsSubClassOf, "C") ;
+        add(vocab, "C", rdfsSubClassOf, "D") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        // A still reaches C directly.
+        Set<Node> changed = setup.removeSubClassOf(node("B"), node("C")) ;
+        assertEquals(nodes("B", "C", "D"), changed) ;
+        vocab.delete(Triple.create(node("B"), rdfsSubClassOf, node("C"))) ;
+        sameAs(setup, new InferenceSetupRDFS(vocab), "A", "B", "C", "D") ;
+        assertTrue(setup.removeSubClassOf(node("B"), node("C")).isEmpty()) ;
+    }
+
+    @Test public void update_cycle() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "A", rdfsSubClassOf, "B") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        setup.addSubClassOf(node("B"), node("A")) ;
+        assertEquals(nodes("A", "B"), setup.getSuperClasses(node("A"))) ;
+        setup.removeSubClassOf(node("A"), node("B")) ;
+        assertEquals(nodes(), setup.getSuperClasses(node("A"))) ;
+        assertEquals(nodes("A"), setup.getSuperClasses(node("B"))) ;
+    }
+
+    @Test public void update_domain() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        assertFalse(setup.hasDomainDeclarations()) ;
+        assertEquals(nodes("p", "D"), setup.addDomain(node("p"), node("D"))) ;
+        assertTrue(setup.hasDomainDeclarations()) ;
+        assertEquals(nodes("D"), setup.getDomain(node("p"))) ;
+        assertEquals(nodes("p"), setup.getPropertiesByDomain(node("D"))) ;
+        add(vocab, "p", rdfsDomain, "D") ;
+        sameAs(setup, new InferenceSetupRDFS(vocab), "p", "D") ;
+        setup.removeDomain(node("p"), node("D")) ;
+        assertFalse(setup.hasDomainDeclarations()) ;
+    }
+
+    // Engine plans are recompiled after an update.
+    @Test public void update_engine() {
+        Graph vocab = Factory.createDefaultGraph() ;
+        add(vocab, "A", rdfsSubClassOf, "B") ;
+        InferenceSetupRDFS setup = new InferenceSetupRDFS(vocab) ;
+        InferenceEngineRDFS engine = new InferenceEngineRDFS(setup) ;
+        Set<Node> types = new HashSet<>() ;
+        engine.process(node("x"), rdfType, node("A"), (s, p, o) -> types.add(o)) ;
+        assertEquals(nodes("B"), types) ;
+        setup.addSubClassOf(node("B"), node("C")) ;
+        types.clear() ;
+        engine.process(node("x"), rdfType, node("A"), (s, p, o) -> types.add(o)) ;
+        assertEquals(nodes("B", "C"), types) ;
+    }
+
+    private static void sameAs(InferenceSetupRDFS setup1, InferenceSetupRDFS setup2, String... names) {
+        for ( String n : names ) {
+            Node x = node(n) ;
+            assertEquals(n, setup2.getSuperClasses(x), setup1.getSuperClasses(x)) ;
+            assertEquals(n, setup2.getSuperClassesInc(x), setup1.getSuperClassesInc(x)) ;
+            assertEquals(n, setup2.getSubClasses(x), setup1.getSubClasses(x)) ;
+            assertEquals(n, setup2.getSubClassesInc(x), setup1.getSubClassesInc(x)) ;
+            assertEquals(n, setup2.getSuperProperties(x), setup1.getSuperProperties(x)) ;
+            assertEquals(n, setup2.getSubProperties(x), setup1.getSubProperties(x)) ;
+            assertEquals(n, setup2.getDomain(x), setup1.getDomain(x)) ;
+            assertEquals(n, setup2.getRange(x), setup1.getRange(x)) ;
+            assertEquals(n, setup2.getPropertiesByDomain(x), setup1.getPropertiesByDomain(x)) ;
+            assertEquals(n, setup2.getPropertiesByRange(x), setup1.getPropertiesByRange(x)) ;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import org.apache.jena.graph.Factory ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Test of RDFS by parallel materialization, with separate data and vocabulary, no RDFS in the deductions. */
+public class TestMaterializeRDFS extends AbstractTestRDFS {
+    static Model vocab ;
+    static Model data ;
+
+    static InferenceSetupRDFS setup ;
+    // Jena graph to check results against.
+    static Graph infGraph ;
+    // The main test target
+    static Graph testGraphMaterialized ;
+    static long emitted ;
+    
+    static final String DIR = "testing/Inf" ;
+    static final String DATA_FILE = DIR+"/rdfs-data.ttl" ;
+    static final String VOCAB_FILE = DIR+"/rdfs-vocab.ttl" ;
+    static final String RULES_FILE = DIR+"/rdfs-min.rules" ;
+    
+    @BeforeClass public static void setupClass() {
+        vocab = RDFDataMgr.loadModel(VOCAB_FILE) ;
+        data = RDFDataMgr.loadModel(DATA_FILE) ;
+        setup = new InferenceSetupRDFS(vocab) ;
+        
+        infGraph = createRulesGraph(data, vocab, RULES_FILE) ;
+
+        // Small batches so that there are several workers.
+        testGraphMaterialized = Factory.createDefaultGraph() ;
+        emitted = new InferenceMaterializeRDFS(setup, 2, 2).materialize(data.getGraph(), testGraphMaterialized) ;
+    }
+
+    @Test public void materialize_count() {
+        // Triples emitted: duplicates across batches are counted.
+        assertTrue(emitted >= testGraphMaterialized.size()) ;
+        // With one batch, there are no duplicates.
+        Graph graph = Factory.createDefaultGraph() ;
+        long count = new InferenceMaterializeRDFS(setup, 1, InferenceMaterializeRDFS.DefaultBatchSize).materialize(data.getGraph(), graph) ;
+        assertEquals(graph.size(), count) ;
+        assertTrue(graph.isIsomorphicWith(testGraphMaterialized)) ;
+    }
+
+    @Override
+    protected Graph getReferenceGraph() {
+        return infGraph ;
+    }
+
+    @Override
+    protected Graph getTestGraph() {
+        return testGraphMaterialized ;
+    }
+
+    @Override
+    protected String getReferenceLabel() {
+        return "Inference" ;
+    }
+
+    @Override
+    protected String getTestLabel() {
+        return "Materialized" ;
+    }
+}
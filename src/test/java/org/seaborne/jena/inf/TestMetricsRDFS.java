@@ -0,0 +1,120 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsDomain ;
+import static org.seaborne.jena.inf.InfGlobal.rdfsSubClassOf ;
+
+import java.lang.management.ManagementFactory ;
+import javax.management.ObjectName ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.Factory ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+import org.junit.After ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+import org.seaborne.jena.inf.MetricsRDFS.Branch ;
+import org.seaborne.jena.inf.MetricsRDFS.Rule ;
+
+public class TestMetricsRDFS extends BaseTest {
+    static final String DIR = "testing/Inf" ;
+    static final String DATA_FILE = DIR+"/rdfs-data.ttl" ;
+    static final String VOCAB_FILE = DIR+"/rdfs-vocab.ttl" ;
+
+    static InferenceSetupRDFS setup ;
+    static Graph data ;
+
+    @BeforeClass public static void setupClass() {
+        setup = new InferenceSetupRDFS(RDFDataMgr.loadGraph(VOCAB_FILE)) ;
+        data = RDFDataMgr.loadGraph(DATA_FILE) ;
+    }
+
+    @After public void after() {
+        InfMetrics.disable() ;
+    }
+
+    static Node node(String str) { return NodeFactory.createURI("http://example/"+str) ; }
+
+    @Test public void metrics_disabled() {
+        InfMetrics.disable() ;
+        assertNull(InfMetrics.get()) ;
+        Graph graph = new GraphRDFS(setup, data) ;
+        assertEquals(4, graph.find(node("a"), rdfType, Node.ANY).toList().size()) ;
+    }
+
+    @Test public void metrics_find() throws Exception {
+        MetricsCollectorRDFS metrics = InfMetrics.enable() ;
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(InfMetrics.JmxName))) ;
+        Graph graph = new GraphRDFS(setup, data) ;
+        // :a rdf:type :T, :T2, :T3, :U
+        assertEquals(4, graph.find(node("a"), rdfType, Node.ANY).toList().size()) ;
+        assertEquals(1, metrics.getFindCount(Branch.X_type_ANY)) ;
+        assertEquals(4L, (long)metrics.getTriplesReturned().get(Branch.X_type_ANY.name())) ;
+        assertTrue(metrics.getSourceFinds().get(Branch.X_type_ANY.name()) > 0) ;
+
+        // Closed early.
+        graph.find(Node.ANY, Node.ANY, node("U")).close() ;
+        assertEquals(1, metrics.getFindCount(Branch.ANY_ANY_T)) ;
+        assertEquals(0, metrics.getFindCount(Branch.ANY_ANY_ANY)) ;
+        metrics.reset() ;
+        assertEquals(0, metrics.getFindCount(Branch.X_type_ANY)) ;
+    }
+
+    @Test public void metrics_rules() {
+        MetricsCollectorRDFS metrics = InfMetrics.enable() ;
+        Graph output = Factory.createDefaultGraph() ;
+        StreamRDF stream = InfFactory.inf(StreamRDFLib.graph(output), setup) ;
+        stream.start() ;
+        // :c :p :x => :c :pTop :x ; :c rdf:type :Q ; :c rdf:type :Q2
+        stream.triple(Triple.create(node("c"), node("p"), node("x"))) ;
+        stream.finish() ;
+        assertEquals(4, output.size()) ;
+        assertEquals(1, metrics.getDerivedCount(Rule.SUBPROPERTY)) ;
+        assertEquals(1, metrics.getDerivedCount(Rule.DOMAIN)) ;
+        assertEquals(1, metrics.getDerivedCount(Rule.SUBCLASS)) ;
+        assertEquals(0, metrics.getDerivedCount(Rule.RANGE)) ;
+    }
+
+    @Test public void metrics_rules_attribution() {
+        // The same attribution by plan and by running the rules (rdfs:subClassOf with derived RDFS data).
+        Graph vocab = Factory.createDefaultGraph() ;
+        vocab.add(Triple.create(rdfsSubClassOf, rdfsDomain, node("C"))) ;
+        vocab.add(Triple.create(node("q"), rdfsDomain, node("C"))) ;
+        vocab.add(Triple.create(node("C"), rdfsSubClassOf, node("D"))) ;
+        InferenceSetupRDFS setup2 = new InferenceSetupRDFS(vocab, true) ;
+        MetricsCollectorRDFS metrics = InfMetrics.enable() ;
+        StreamRDF stream = InfFactory.inf(StreamRDFLib.sinkNull(), setup2) ;
+        stream.start() ;
+        // Rules: :x rdf:type :C ; rdfs:subClassOf rdfs:domain :C, then :x rdf:type :D is subClass.
+        stream.triple(Triple.create(node("x"), rdfsSubClassOf, node("y"))) ;
+        assertEquals(2, metrics.getDerivedCount(Rule.DOMAIN)) ;
+        metrics.reset() ;
+        // Plan: :x rdf:type :C ; :q rdfs:domain :C, then :x rdf:type :D is subClass.
+        stream.triple(Triple.create(node("x"), node("q"), node("z"))) ;
+        assertEquals(2, metrics.getDerivedCount(Rule.DOMAIN)) ;
+        stream.finish() ;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf ;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.query.* ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.sparql.algebra.Algebra ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.op.OpBGP ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.junit.Assert ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** SPARQL with RDFS by query rewriting, checked against SPARQL over {@link GraphRDFS}. */
+public class TestRewriteRDFS {
+    static final String DIR = "testing/Inf" ;
+    static final String DATA_FILE = DIR+"/rdfs-data.ttl" ;
+    static final String VOCAB_FILE = DIR+"/rdfs-vocab.ttl" ;
+    static final String PREFIXES = "PREFIX : <http://example/> PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>\n" ;
+
+    static InferenceSetupRDFS setup ;
+    // Query rewriting.
+    static Dataset dsRewrite ;
+    // Backward chaining graph.
+    static Dataset dsGraph ;
+
+    @BeforeClass public static void setupClass() {
+        Graph vocab = RDFDataMgr.loadGraph(VOCAB_FILE) ;
+        setup = new InferenceSetupRDFS(vocab) ;
+        DatasetGraph dsg1 = DatasetGraphFactory.create() ;
+        RDFDataMgr.read(dsg1, DATA_FILE) ;
+        InfFactory.queryRewriteRDFS(dsg1, setup) ;
+        dsRewrite = DatasetFactory.wrap(dsg1) ;
+
+        Graph data = RDFDataMgr.loadGraph(DATA_FILE) ;
+        DatasetGraph dsg2 = DatasetGraphFactory.create(new GraphRDFS(setup, data)) ;
+        dsGraph = DatasetFactory.wrap(dsg2) ;
+    }
+
+    @Test public void rewrite_type()            { test("SELECT * { ?x rdf:type :U }") ; }
+    @Test public void rewrite_type_domain()     { test("SELECT * { ?x rdf:type :Q2 }") ; }
+    @Test public void rewrite_type_range()      { test("SELECT * { ?x rdf:type :P }") ; }
+    @Test public void rewrite_type_const()      { test("SELECT * { :a rdf:type :U }") ; }
+    @Test public void rewrite_property()        { test("SELECT * { ?x :pTop ?y }") ; }
+    @Test public void rewrite_join()            { test("SELECT * { ?x :p ?y . ?x rdf:type :Q }") ; }
+    @Test public void rewrite_none()            { test("SELECT * { ?x :q ?y }") ; }
+
+    @Test public void rewrite_no_change() {
+        Op op = Algebra.compile(QueryFactory.create(PREFIXES+"SELECT * { ?x :q ?y }")) ;
+        Op op2 = TransformRDFS.rewrite(op, setup) ;
+        Assert.assertEquals(op, op2) ;
+        Assert.assertTrue(op2 instanceof OpBGP) ;
+    }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create(PREFIXES+queryString) ;
+        List<String> expected = results(dsGraph, query) ;
+        List<String> actual = results(dsRewrite, query) ;
+        Assert.assertEquals(expected, actual) ;
+    }
+
+    private static List<String> results(Dataset ds, Query query) {
+        List<String> x = new ArrayList<>() ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, ds) ) {
+            ResultSet rs = qExec.execSelect() ;
+            // Bindings by variable: the printed form depends on how the binding was built.
+            rs.forEachRemaining(qs->{
+                StringBuilder sb = new StringBuilder() ;
+                for ( String v : rs.getResultVars() )
+                    sb.append(v).append("=").append(qs.get(v)).append(" ") ;
+                x.add(sb.toString()) ;
+            }) ;
+        }
+        Collections.sort(x) ;
+        return x ;
+    }
+}
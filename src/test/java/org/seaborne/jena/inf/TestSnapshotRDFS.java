@@ -0,0 +1,164 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import java.io.IOException ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.nio.file.Paths ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.shared.JenaException ;
+import org.junit.Assume ;
+import org.junit.Test ;
+
+/** {@link GraphRDFS} with a setup loaded from a {@link SnapshotRDFS}, with memory mapped tables. */
+public class TestSnapshotRDFS extends AbstractTestGraphRDFS {
+    static InferenceSetupRDFS snapshotSetup = null ;
+    static final byte[] hash = SnapshotRDFS.vocabularyHash(Paths.get(VOCAB_FILE)) ;
+
+    @Override
+    protected Graph createGraphRDFS(InferenceSetupRDFS setup, Graph data) {
+        if ( snapshotSetup == null )
+            snapshotSetup = mapped(setup) ;
+        return new GraphRDFS(snapshotSetup, data) ;
+    }
+
+    @Override
+    protected String getTestLabel() {
+        return "GraphRDFS (snapshot)" ;
+    }
+
+    private static InferenceSetupRDFS mapped(InferenceSetupRDFS setup) {
+        Path file = tempFile() ;
+        // Not deleted while mapped.
+        file.toFile().deleteOnExit() ;
+        SnapshotRDFS.write(setup, hash, file) ;
+        return SnapshotRDFS.map(file, hash, false) ;
+    }
+
+    private static InferenceSetupRDFS roundTrip(InferenceSetupRDFS setup) {
+        Path file = tempFile() ;
+        try {
+            SnapshotRDFS.write(setup, hash, file) ;
+            return SnapshotRDFS.read(file, hash, false) ;
+        } finally { delete(file) ; }
+    }
+
+    @Test public void snapshot_tables() {
+        InferenceSetupRDFS setup2 = roundTrip(setup) ;
+        for ( String s : new String[]{"T", "U", "S1", "R", "Q", "P", "p", "pp", "pTop", "q"} ) {
+            Node n = node(s) ;
+            assertEquals(setup.getSuperClasses(n), setup2.getSuperClasses(n)) ;
+            assertEquals(setup.getSubClassesInc(n), setup2.getSubClassesInc(n)) ;
+            assertEquals(setup.getSuperProperties(n), setup2.getSuperProperties(n)) ;
+            assertEquals(setup.getSubPropertiesInc(n), setup2.getSubPropertiesInc(n)) ;
+            assertEquals(setup.getDomain(n), setup2.getDomain(n)) ;
+            assertEquals(setup.getRange(n), setup2.getRange(n)) ;
+            assertEquals(setup.getPropertiesByDomain(n), setup2.getPropertiesByDomain(n)) ;
+            assertEquals(setup.getPropertiesByRange(n), setup2.getPropertiesByRange(n)) ;
+        }
+        assertEquals(setup.getVocabGraph().size(), setup2.getVocabGraph().size()) ;
+    }
+
+    @Test public void snapshot_mapped_update() {
+        InferenceSetupRDFS setup2 = mapped(setup) ;
+        assertEquals(setup.getSuperClasses(node("R")), setup2.getSuperClasses(node("R"))) ;
+        // Changes go to the heap, over the mapped rows.
+        setup2.addSubClassOf(node("U"), node("V")) ;
+        assertTrue(setup2.getSuperClasses(node("R")).contains(node("V"))) ;
+        assertFalse(setup.getSuperClasses(node("R")).contains(node("V"))) ;
+        setup2.removeSubClassOf(node("U"), node("V")) ;
+        assertEquals(setup.getSuperClasses(node("R")), setup2.getSuperClasses(node("R"))) ;
+        assertTrue(setup2.getSubClasses(node("V")).isEmpty()) ;
+    }
+
+    @Test public void snapshot_stale() {
+        Path file = tempFile() ;
+        try {
+            SnapshotRDFS.write(setup, hash, file) ;
+            assertNull(SnapshotRDFS.read(file, new byte[]{1,2,3}, false)) ;
+            assertNull(SnapshotRDFS.read(file, hash, true)) ;
+            delete(file) ;
+            assertNull(SnapshotRDFS.read(file, hash, false)) ;
+        } finally { delete(file) ; }
+    }
+
+    @Test(expected=JenaException.class)
+    public void snapshot_damaged() throws IOException {
+        Path file = tempFile() ;
+        try {
+            SnapshotRDFS.write(setup, hash, file) ;
+            byte[] bytes = Files.readAllBytes(file) ;
+            bytes[bytes.length/2] ^= 0x5A ;
+            Files.write(file, bytes) ;
+            SnapshotRDFS.read(file, hash, false) ;
+        } finally { delete(file) ; }
+    }
+
+    @Test public void snapshot_load() {
+        Path file = tempFile() ;
+        delete(file) ;
+        try {
+            InferenceSetupRDFS setup1 = SnapshotRDFS.load(Paths.get(VOCAB_FILE), file, false) ;
+            assertTrue(Files.exists(file)) ;
+            InferenceSetupRDFS setup2 = SnapshotRDFS.load(Paths.get(VOCAB_FILE), file, false) ;
+            assertEquals(setup1.getSuperClasses(node("R")), setup2.getSuperClasses(node("R"))) ;
+        } finally { delete(file) ; }
+    }
+
+    @Test public void snapshot_load_read_only() throws IOException {
+        Path dir = Files.createTempDirectory("rdfs") ;
+        Path file = dir.resolve("vocab.snapshot") ;
+        try {
+            dir.toFile().setWritable(false) ;
+            // Permissions do not apply to some users (e.g. root).
+            Assume.assumeFalse(Files.isWritable(dir)) ;
+            InferenceSetupRDFS setup1 = SnapshotRDFS.load(Paths.get(VOCAB_FILE), file, false) ;
+            assertFalse(Files.exists(file)) ;
+            assertEquals(setup.getSuperClasses(node("R")), setup1.getSuperClasses(node("R"))) ;
+        } finally {
+            dir.toFile().setWritable(true) ;
+            delete(file) ;
+            delete(dir) ;
+        }
+    }
+
+    @Test public void snapshot_load_unwritable() {
+        // The "directory" is a file: writing the snapshot fails for any user.
+        Path notDir = tempFile() ;
+        Path file = notDir.resolve("vocab.snapshot") ;
+        try {
+            InferenceSetupRDFS setup1 = SnapshotRDFS.load(Paths.get(VOCAB_FILE), file, false, true) ;
+            assertEquals(setup.getSuperClasses(node("R")), setup1.getSuperClasses(node("R"))) ;
+        } finally { delete(notDir) ; }
+    }
+
+    private static Path tempFile() {
+        try {
+            return Files.createTempFile("rdfs", ".snapshot") ;
+        } catch (IOException ex) { throw new JenaException(ex) ; }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file) ;
+        } catch (IOException ex) { throw new JenaException(ex) ; }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  See the NOTICE file distributed with this work for additional
+ *  information regarding copyright ownership.
+ */
+
+package org.seaborne.jena.inf;
+
+import static org.seaborne.jena.inf.InfGlobal.rdfType ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFBase ;
+import org.junit.Test ;
+
+/** Tests of {@link StreamRDFDistinct}. */
+public class TestStreamRDFDistinct extends BaseTest {
+    static Node node(String str) { return NodeFactory.createURI("http://example/"+str) ; }
+
+    static Triple triple(int i) { return Triple.create(node("s"+i), rdfType, node("T")) ; }
+
+    static StreamRDF collect(List<Triple> acc) {
+        return new StreamRDFBase() {
+            @Override public void triple(Triple triple) { acc.add(triple) ; }
+        } ;
+    }
+
+    @Test public void window_1() {
+        List<Triple> acc = new ArrayList<>() ;
+        StreamRDFDistinct stream = StreamRDFDistinct.window(collect(acc), 10) ;
+        for ( int j = 0 ; j < 3 ; j++ )
+            for ( int i = 0 ; i < 5 ; i++ )
+                stream.triple(triple(i)) ;
+        assertEquals(5, acc.size()) ;
+        assertEquals(10, stream.getDropped()) ;
+    }
+
+    @Test public void window_2() {
+        // Repeats further apart than the window are passed on again.
+        List<Triple> acc = new ArrayList<>() ;
+        StreamRDFDistinct stream = StreamRDFDistinct.window(collect(acc), 2) ;
+        for ( int i = 0 ; i < 3 ; i++ )
+            stream.triple(triple(i)) ;
+        stream.triple(triple(2)) ;
+        stream.triple(triple(0)) ;
+        assertEquals(4, acc.size()) ;
+        assertEquals(1, stream.getDropped()) ;
+    }
+
+    @Test public void bloom_1() {
+        List<Triple> acc = new ArrayList<>() ;
+        StreamRDFDistinct stream = StreamRDFDistinct.bloom(collect(acc), 1000, 1e-9, 10) ;
+        for ( int j = 0 ; j < 2 ; j++ )
+            for ( int i = 0 ; i < 500 ; i++ )
+                stream.triple(triple(i)) ;
+        assertEquals(500, acc.size()) ;
+        assertEquals(500, stream.getDropped()) ;
+    }
+}